@@ -0,0 +1,74 @@
+package com.xuwei.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.xuwei.config.ApplicationProperties;
+import com.xuwei.config.RabbitMQConfig;
+import com.xuwei.events.OrderCreatedEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round trip of an {@link OrderCreatedEvent} through the converter the order-service registers for
+ * RabbitMQ, built from an ObjectMapper configured like Spring Boot's default one, once per wire format.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OrderCreatedEventSerializationBenchmark {
+
+    @Param({"application/json", "application/x-jackson-smile"})
+    private String contentType;
+
+    private MessageConverter converter;
+    private OrderCreatedEvent event;
+    private Message message;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = mapperBuilder().build();
+        ApplicationProperties props = new ApplicationProperties();
+        props.getWireFormat().setContentType(contentType);
+        RabbitMQConfig config = new RabbitMQConfig(props, new StandardEnvironment());
+        converter = config.orderEventMessageConverter(config.jackson2JsonMessageConverter(objectMapper), mapperBuilder());
+        event = new OrderCreatedEvent("6f1c2b9e-7d0a-4c55-9a3e-2f8b1d4e6a70", "QR-8F14E45F",
+                "jmeter-user-42", new BigDecimal("26.25"), LocalDateTime.of(2024, 1, 1, 12, 0));
+        message = converter.toMessage(event, new MessageProperties());
+    }
+
+    @Benchmark
+    public Message serialize() {
+        return converter.toMessage(event, new MessageProperties());
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return converter.fromMessage(message);
+    }
+
+    private static Jackson2ObjectMapperBuilder mapperBuilder() {
+        return new Jackson2ObjectMapperBuilder()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+}
@@ -0,0 +1,68 @@
+package com.xuwei.benchmarks;
+
+import com.xuwei.dto.OrderResponse;
+import com.xuwei.model.OrderEntity;
+import com.xuwei.utils.OrderMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OrderMapperBenchmark {
+
+    private final OrderMapper orderMapper = new OrderMapper();
+    private OrderEntity order;
+
+    @Setup
+    public void setUp() {
+        order = new OrderEntity();
+        order.setId(42L);
+        order.setOrderNumber("QR-8F14E45F");
+        order.setUsername("jmeter-user-42");
+        order.setCustomerName("JMeter Customer 42");
+        order.setCustomerEmail("jmeter42@test.com");
+        order.setCustomerPhone("138001380042");
+        order.setDeliveryAddressLine1("42 JMeter Street");
+        order.setDeliveryAddressCity("Test City");
+        order.setDeliveryAddressState("TC");
+        order.setDeliveryAddressZipCode("100002");
+        order.setDeliveryAddressCountry("CN");
+        order.setStatus("CREATED");
+        order.setTotalPrice(new BigDecimal("26.25"));
+        order.setCreatedAt(LocalDateTime.of(2024, 1, 1, 12, 0));
+    }
+
+    @Benchmark
+    public OrderResponse toResponse() {
+        return orderMapper.toResponse(order);
+    }
+
+    // the mapping OrderServiceImpl uses for its own reads: the all-args constructor instead of the builder
+    @Benchmark
+    public OrderResponse toResponseConstructor() {
+        return new OrderResponse(
+                order.getId(),
+                order.getOrderNumber(),
+                order.getStatus(),
+                order.getCustomerName(),
+                order.getTotalPrice(),
+                order.getCreatedAt()
+        );
+    }
+}
@@ -0,0 +1,45 @@
+package com.xuwei.benchmarks;
+
+import com.xuwei.dto.TaskInfoResponse;
+import com.xuwei.utils.PriceCalculator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PriceCalculatorBenchmark {
+
+    private TaskInfoResponse task;
+    private BigDecimal distanceKm;
+
+    @Setup
+    public void setUp() {
+        task = new TaskInfoResponse();
+        task.setId(1L);
+        task.setName("Standard delivery");
+        task.setBaseFee(new BigDecimal("5.00"));
+        task.setPerKmRate(new BigDecimal("1.25"));
+        task.setActive(true);
+        distanceKm = new BigDecimal("17");
+    }
+
+    @Benchmark
+    public BigDecimal calculate() {
+        return PriceCalculator.calculate(task, distanceKm);
+    }
+}
@@ -0,0 +1,48 @@
+package com.xuwei.benchmarks;
+
+import com.xuwei.dto.TaskResponse;
+import com.xuwei.mapper.TaskMapper;
+import com.xuwei.model.Task;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TaskMapperBenchmark {
+
+    private Task task;
+
+    @Setup
+    public void setUp() {
+        task = new Task();
+        task.setId(1L);
+        task.setName("Standard delivery");
+        task.setDescription("Same-day delivery within the city");
+        task.setBaseFee(new BigDecimal("5.00"));
+        task.setPerKmRate(new BigDecimal("1.25"));
+        task.setActive(true);
+        task.setCreatedAt(LocalDateTime.of(2024, 1, 1, 12, 0));
+        task.setUpdatedAt(LocalDateTime.of(2024, 1, 2, 12, 0));
+    }
+
+    @Benchmark
+    public TaskResponse toResponse() {
+        return TaskMapper.toResponse(task);
+    }
+}
@@ -6,6 +6,9 @@ import lombok.NoArgsConstructor;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Component
 @ConfigurationProperties(prefix = "app")
 @Data
@@ -15,8 +18,190 @@ public class ApplicationProperties {
 
     private String orderEventsExchange = "quickrun.order.exchange";
     private String newOrdersQueue = "quickrun.order.new";
+    // > 1 splits new orders over quickrun.order.new.0..N-1, each with a single active consumer;
+    // see the README before changing it on a running system
+    private int newOrdersPartitions = 1;
+    // classic or quorum; stream consumes from quorum queues and also keeps a copy of every event in a
+    // <queue>.stream that can be replayed from an offset
+    private String queueType = "classic";
     private String deliveredOrdersQueue = "quickrun.order.delivered";
     private String cancelledOrdersQueue = "quickrun.order.cancelled";
     private String errorOrdersQueue = "quickrun.order.error";
+    private String parkingLotQueue = "quickrun.order.parking-lot";
+
+    private Outbox outbox = new Outbox();
+    private TaskCache taskCache = new TaskCache();
+    private TaskClient taskClient = new TaskClient();
+    private Jdbc jdbc = new Jdbc();
+    private BulkIngest bulkIngest = new BulkIngest();
+    private Listener listener = new Listener();
+    private EventProcessing eventProcessing = new EventProcessing();
+    private Dedup dedup = new Dedup();
+    private VirtualThreads virtualThreads = new VirtualThreads();
+    private Admission admission = new Admission();
+    private GroupCommit groupCommit = new GroupCommit();
+    private Export export = new Export();
+    private EventPartitions eventPartitions = new EventPartitions();
+    private WireFormat wireFormat = new WireFormat();
+    private Publisher publisher = new Publisher();
+    private Channels channels = new Channels();
+    private Replay replay = new Replay();
+    private Retry retry = new Retry();
+
+    @Data
+    public static class Outbox {
+        private boolean enabled = true;
+        private int batchSize = 200;
+        private long pollIntervalMs = 200;
+    }
+
+    @Data
+    public static class TaskCache {
+        private boolean enabled = true;
+        private int maxSize = 1000;
+        private long ttlSeconds = 300;
+        private long refreshAfterSeconds = 60;
+        private long staleIfErrorSeconds = 3600;
+    }
+
+    @Data
+    public static class TaskClient {
+        private int maxConnections = 200;
+        private int maxConnectionsPerRoute = 100;
+        private long connectTimeoutMs = 1000;
+        private long readTimeoutMs = 2000;
+        private long connectionRequestTimeoutMs = 500;
+        private long idleTimeoutSeconds = 30;
+        private int failureThreshold = 5;
+        private long openDurationMs = 10000;
+        // ids per bulk lookup, which keeps the query string well inside the server's header limit
+        private int bulkFetchSize = 500;
+    }
+
+    @Data
+    public static class Jdbc {
+        private int batchSize = 50;
+        private boolean rewriteBatchedInserts = true;
+    }
+
+    @Data
+    public static class BulkIngest {
+        private int chunkSize = 10000;
+    }
+
+    @Data
+    public static class Listener {
+        private int batchSize = 100;
+        private long receiveTimeoutMs = 200;
+    }
+
+    @Data
+    public static class EventProcessing {
+        private String strategy = "persist-only";
+        private long cpuMicrosPerEvent = 0;
+        private long ioMicrosPerEvent = 0;
+    }
+
+    @Data
+    public static class Dedup {
+        private int recentCacheSize = 10000;
+        private long retentionHours = 72;
+        private long pruneIntervalMs = 3600000;
+    }
+
+    @Data
+    public static class VirtualThreads {
+        // 0 means size the async executors to the Hikari pool
+        private int asyncConcurrencyLimit = 0;
+        // tasks waiting for a connection permit before submissions are rejected
+        private int asyncQueueCapacity = 500;
+        private int maxConnections = 20000;
+        private int acceptCount = 1000;
+    }
+
+    @Data
+    public static class Admission {
+        private boolean enabled = true;
+        private int initialLimit = 20;
+        private int minLimit = 5;
+        private int maxLimit = 500;
+        private double backoffRatio = 0.9;
+        private long latencyThresholdMs = 500;
+        private int retryAfterSeconds = 1;
+    }
+
+    @Data
+    public static class GroupCommit {
+        private boolean enabled = false;
+        private int maxBatchSize = 100;
+        private long maxWaitMs = 5;
+        private int queueCapacity = 10000;
+        private long timeoutMs = 5000;
+    }
+
+    @Data
+    public static class Export {
+        private int fetchSize = 1000;
+        private long asyncTimeoutMs = 3600000;
+    }
+
+    @Data
+    public static class EventPartitions {
+        private int premakeDays = 3;
+        private int retentionDays = 30;
+        // false detaches expired partitions and leaves them for archiving instead of dropping them
+        private boolean dropExpired = true;
+        private long maintenanceIntervalMs = 3600000;
+    }
+
+    @Data
+    public static class WireFormat {
+        // application/json or application/x-jackson-smile; consumers read both regardless
+        private String contentType = "application/json";
+    }
+
+    @Data
+    public static class Publisher {
+        // messages sent but not yet confirmed; publishing waits up to windowTimeoutMs for a free slot
+        private int maxInFlight = 1000;
+        private long windowTimeoutMs = 5000;
+        private long confirmTimeoutMs = 5000;
+        private int maxRetries = 3;
+        private long retryBackoffMs = 100;
+    }
+
+    @Data
+    public static class Channels {
+        // publishers get their own connection so broker flow control on the consumer side cannot block them
+        private boolean separatePublisherConnection = true;
+        // the consumer connection uses spring.rabbitmq.cache.channel.*
+        private int publisherCacheSize = 50;
+        // > 0 turns the publisher cache size into a hard limit and waits this long for a free channel;
+        // listener consumers hold their channels for good, so the consumer side is never limited
+        private long publisherCheckoutTimeoutMs = 2000;
+    }
+
+    @Data
+    public static class Replay {
+        private int batchSize = 500;
+        // the replay stops once no message arrived for this long
+        private long idleTimeoutMs = 5000;
+        // how long the replay streams keep events, as x-max-age (Y, M, D, h, m or s)
+        private String streamMaxAge = "7D";
+
+        public String streamName(String queue) {
+            return queue + ".stream";
+        }
+    }
+
+    @Data
+    public static class Retry {
+        // failed events wait in <exchange-prefix>.<delay>ms for each delay in turn, then go to the parking lot
+        private String exchangePrefix = "quickrun.order.retry";
+        private List<Long> tierDelaysMs = new ArrayList<>(List.of(1000L, 10000L, 60000L));
 
+        public String tierName(long delayMs) {
+            return exchangePrefix + "." + delayMs + "ms";
+        }
+    }
 }
@@ -1,5 +1,7 @@
 package com.xuwei.config;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
@@ -12,6 +14,7 @@ import java.util.concurrent.ThreadPoolExecutor;
 @EnableAsync
 public class AsyncConfig {
     @Bean("orderAsyncExecutor")
+    @ConditionalOnThreading(Threading.PLATFORM)
     public Executor orderAsyncExecutor() {
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
 
@@ -25,7 +28,8 @@ public class AsyncConfig {
 
         executor.setKeepAliveSeconds(60);
 
-        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        // rejections surface as 429 from the admission limiter instead of running on the request thread
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
         
 
         executor.setWaitForTasksToCompleteOnShutdown(true);
@@ -38,6 +42,7 @@ public class AsyncConfig {
     }
 
     @Bean("batchAsyncExecutor")
+    @ConditionalOnThreading(Threading.PLATFORM)
     public Executor batchAsyncExecutor() {
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         
@@ -53,4 +58,18 @@ public class AsyncConfig {
         
         return executor;
     }
+
+    @Bean("taskRefreshExecutor")
+    public Executor taskRefreshExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(2);
+        executor.setQueueCapacity(100);
+        executor.setThreadNamePrefix("task-refresh-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.DiscardPolicy());
+        executor.initialize();
+
+        return executor;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,90 @@
+package com.xuwei.config;
+
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Starts every task on its own virtual thread right away and makes it wait for one of
+ * {@code permits} before running, so at most that many tasks hold a connection while submitters
+ * never block. Once {@code queueCapacity} tasks are waiting, further submissions are rejected with
+ * {@link TaskRejectedException}, which callers already map to a 429.
+ */
+public class PermitGatedTaskExecutor implements AsyncTaskExecutor, AutoCloseable {
+
+    private final SimpleAsyncTaskExecutor delegate;
+    private final Semaphore permits;
+    private final int maxPermits;
+    private final int queueCapacity;
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    public PermitGatedTaskExecutor(String threadNamePrefix, int permits, int queueCapacity,
+                                   long taskTerminationTimeoutMs) {
+        this.delegate = new SimpleAsyncTaskExecutor(threadNamePrefix);
+        this.delegate.setVirtualThreads(true);
+        this.delegate.setTaskTerminationTimeout(taskTerminationTimeoutMs);
+        this.permits = new Semaphore(permits);
+        this.maxPermits = permits;
+        this.queueCapacity = queueCapacity;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (permits.tryAcquire()) {
+            try {
+                delegate.execute(() -> runAndRelease(task));
+            } catch (RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+            return;
+        }
+        if (waiting.incrementAndGet() > queueCapacity) {
+            waiting.decrementAndGet();
+            throw new TaskRejectedException("Executor " + delegate.getThreadNamePrefix() + " has "
+                    + queueCapacity + " tasks waiting for a permit");
+        }
+        try {
+            delegate.execute(() -> awaitPermitAndRun(task));
+        } catch (RuntimeException e) {
+            waiting.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private void awaitPermitAndRun(Runnable task) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } finally {
+            waiting.decrementAndGet();
+        }
+        runAndRelease(task);
+    }
+
+    private void runAndRelease(Runnable task) {
+        try {
+            task.run();
+        } finally {
+            permits.release();
+        }
+    }
+
+    public int getQueueSize() {
+        return waiting.get();
+    }
+
+    public int getActiveCount() {
+        return maxPermits - permits.availablePermits();
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
@@ -1,24 +1,50 @@
 package com.xuwei.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.xuwei.utils.OrderPartitions;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.core.*;
+import org.springframework.amqp.rabbit.config.RetryInterceptorBuilder;
 import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.CachingConnectionFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.connection.RabbitConnectionFactoryBean;
 import org.springframework.amqp.rabbit.core.RabbitAdmin;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.retry.MessageBatchRecoverer;
+import org.springframework.amqp.support.converter.ContentTypeDelegatingMessageConverter;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.amqp.CachingConnectionFactoryConfigurer;
+import org.springframework.boot.autoconfigure.amqp.ConnectionFactoryCustomizer;
+import org.springframework.boot.autoconfigure.amqp.RabbitConnectionFactoryBeanConfigurer;
+import org.springframework.boot.autoconfigure.thread.Threading;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.function.Supplier;
 
 @Slf4j
 @Configuration
 public class RabbitMQConfig {
 
     private final ApplicationProperties props;
+    private final Environment environment;
 
-    public RabbitMQConfig(ApplicationProperties props) {
+    public RabbitMQConfig(ApplicationProperties props, Environment environment) {
         this.props = props;
+        this.environment = environment;
         log.info("Initializing RabbitMQ Configuration");
     }
 
@@ -29,37 +55,55 @@ public class RabbitMQConfig {
         return new DirectExchange(exchangeName, true, false);
     }
 
+    /**
+     * One durable queue per new-order partition, each bound with its own name as routing key.
+     */
     @Bean
-    public Queue newOrdersQueue() {
-        String queueName = props.getNewOrdersQueue();
-        log.info("Creating Queue: {} (Durable)", queueName);
-        return QueueBuilder.durable(queueName).build();
+    public Declarables newOrdersQueues() {
+        List<Declarable> declarables = new ArrayList<>();
+        // every replica listens on every partition; the broker lets only one of them consume at a time,
+        // which keeps the per-order ordering the partitions exist for
+        boolean singleActiveConsumer = props.getNewOrdersPartitions() > 1;
+        for (String queueName : OrderPartitions.queueNames(props.getNewOrdersQueue(), props.getNewOrdersPartitions())) {
+            log.info("Creating Queue: {} ({})", queueName, props.getQueueType());
+            Queue queue = orderQueue(queueName, singleActiveConsumer);
+            declarables.add(queue);
+            declarables.add(BindingBuilder.bind(queue).to(orderExchange()).with(queueName));
+        }
+        return new Declarables(declarables);
     }
 
     @Bean
     public Queue deliveredOrdersQueue() {
-        String queueName = props.getDeliveredOrdersQueue();
-        return QueueBuilder.durable(queueName).build();
+        return orderQueue(props.getDeliveredOrdersQueue());
     }
 
     @Bean
     public Queue cancelledOrdersQueue() {
-        String queueName = props.getCancelledOrdersQueue();
-        return QueueBuilder.durable(queueName).build();
+        return orderQueue(props.getCancelledOrdersQueue());
     }
 
     @Bean
     public Queue errorOrdersQueue() {
-        String queueName = props.getErrorOrdersQueue();
-        return QueueBuilder.durable(queueName).build();
+        return orderQueue(props.getErrorOrdersQueue());
     }
 
-    @Bean
-    public Binding bindNewOrders() {
-        String exchange = props.getOrderEventsExchange();
-        String queue = props.getNewOrdersQueue();
-        log.info("Binding Queue '{}' to Exchange '{}' with Routing Key '{}'", queue, exchange, queue);
-        return BindingBuilder.bind(newOrdersQueue()).to(orderExchange()).with(queue);
+    // the broker refuses to redeclare an existing queue with another type, so switching needs new or deleted queues
+    private Queue orderQueue(String name) {
+        return orderQueue(name, false);
+    }
+
+    private Queue orderQueue(String name, boolean singleActiveConsumer) {
+        QueueBuilder builder = QueueBuilder.durable(name);
+        if (singleActiveConsumer) {
+            builder.singleActiveConsumer();
+        }
+        return switch (props.getQueueType()) {
+            case "classic" -> builder.build();
+            // every consumer of a stream reads every message, so the live listeners stay on quorum queues
+            case "quorum", "stream" -> builder.quorum().build();
+            default -> throw new IllegalStateException("Unsupported app.queue-type: " + props.getQueueType());
+        };
     }
 
     @Bean
@@ -80,29 +124,132 @@ public class RabbitMQConfig {
         return BindingBuilder.bind(errorOrdersQueue()).to(orderExchange()).with(queue);
     }
 
+    /**
+     * With {@code app.queue-type=stream}, one stream per event type bound to the same routing keys as
+     * the live queues. Nothing consumes them except {@link com.xuwei.events.OrderEventReplayer}.
+     * Retried events pass the order exchange again and are kept twice; replay tolerates that.
+     */
+    @Bean
+    public Declarables replayStreams() {
+        if (!"stream".equals(props.getQueueType())) {
+            return new Declarables();
+        }
+        List<Declarable> declarables = new ArrayList<>();
+        addReplayStream(declarables, props.getNewOrdersQueue(),
+                OrderPartitions.queueNames(props.getNewOrdersQueue(), props.getNewOrdersPartitions()));
+        addReplayStream(declarables, props.getDeliveredOrdersQueue(), List.of(props.getDeliveredOrdersQueue()));
+        addReplayStream(declarables, props.getCancelledOrdersQueue(), List.of(props.getCancelledOrdersQueue()));
+        addReplayStream(declarables, props.getErrorOrdersQueue(), List.of(props.getErrorOrdersQueue()));
+        return new Declarables(declarables);
+    }
+
+    private void addReplayStream(List<Declarable> declarables, String queue, List<String> routingKeys) {
+        ApplicationProperties.Replay replay = props.getReplay();
+        Queue stream = QueueBuilder.durable(replay.streamName(queue))
+                .stream()
+                .withArgument("x-max-age", replay.getStreamMaxAge())
+                .build();
+        declarables.add(stream);
+        for (String routingKey : routingKeys) {
+            declarables.add(BindingBuilder.bind(stream).to(orderExchange()).with(routingKey));
+        }
+    }
+
+    /**
+     * Delayed retry without sleeping on a consumer thread: each tier is a fanout exchange and a queue
+     * whose TTL dead-letters the message back to the order exchange under its original routing key.
+     */
+    @Bean
+    public Declarables retryTopology() {
+        List<Declarable> declarables = new ArrayList<>();
+        for (long delayMs : props.getRetry().getTierDelaysMs()) {
+            String name = props.getRetry().tierName(delayMs);
+            FanoutExchange exchange = new FanoutExchange(name, true, false);
+            Queue queue = QueueBuilder.durable(name)
+                    .ttl((int) delayMs)
+                    .deadLetterExchange(props.getOrderEventsExchange())
+                    .build();
+            declarables.add(exchange);
+            declarables.add(queue);
+            declarables.add(BindingBuilder.bind(queue).to(exchange));
+        }
+        declarables.add(QueueBuilder.durable(props.getParkingLotQueue()).build());
+        return new Declarables(declarables);
+    }
+
     @Bean
     public Jackson2JsonMessageConverter jackson2JsonMessageConverter(ObjectMapper objectMapper) {
         log.info("Configuring Jackson2JsonMessageConverter");
         return new Jackson2JsonMessageConverter(objectMapper);
     }
 
+    /**
+     * Writes with the converter for {@code app.wire-format.content-type} and reads whichever format
+     * the message's {@code contentType} names, so producers and consumers can switch independently.
+     */
+    @Bean
+    public ContentTypeDelegatingMessageConverter orderEventMessageConverter(Jackson2JsonMessageConverter jsonConverter,
+                                                                            Jackson2ObjectMapperBuilder mapperBuilder) {
+        SmileMessageConverter smileConverter =
+                new SmileMessageConverter(mapperBuilder.factory(new SmileFactory()).build());
+        String contentType = props.getWireFormat().getContentType();
+        MessageConverter defaultConverter = switch (contentType) {
+            case MessageProperties.CONTENT_TYPE_JSON -> jsonConverter;
+            case SmileMessageConverter.CONTENT_TYPE -> smileConverter;
+            default -> throw new IllegalStateException("Unsupported app.wire-format.content-type: " + contentType);
+        };
+        log.info("Configuring order event wire format: {}", contentType);
+        ContentTypeDelegatingMessageConverter converter = new ContentTypeDelegatingMessageConverter(defaultConverter);
+        converter.addDelegate(MessageProperties.CONTENT_TYPE_JSON, jsonConverter);
+        converter.addDelegate(SmileMessageConverter.CONTENT_TYPE, smileConverter);
+        return converter;
+    }
+
+    /**
+     * Boot's connection factory, built with Boot's own configurers so every {@code spring.rabbitmq.*}
+     * property (confirm type, returns, channel cache) still applies. The only addition is the channel
+     * pool of the separate publisher connection, which Boot has no properties for.
+     */
+    @Bean
+    public CachingConnectionFactory rabbitConnectionFactory(RabbitConnectionFactoryBeanConfigurer rabbitConfigurer,
+                                                            CachingConnectionFactoryConfigurer cachingConfigurer,
+                                                            ObjectProvider<ConnectionFactoryCustomizer> customizers)
+            throws Exception {
+        RabbitConnectionFactoryBean connectionFactoryBean = new RabbitConnectionFactoryBean();
+        rabbitConfigurer.configure(connectionFactoryBean);
+        connectionFactoryBean.afterPropertiesSet();
+        com.rabbitmq.client.ConnectionFactory rabbitConnectionFactory = connectionFactoryBean.getObject();
+        customizers.orderedStream().forEach(customizer -> customizer.customize(rabbitConnectionFactory));
+
+        CachingConnectionFactory connectionFactory = new CachingConnectionFactory(rabbitConnectionFactory);
+        cachingConfigurer.configure(connectionFactory);
+        // listener consumers hold their channels for good, so only the publisher side gets a hard limit
+        ApplicationProperties.Channels channels = props.getChannels();
+        if (connectionFactory.getPublisherConnectionFactory() instanceof CachingConnectionFactory publisherCf) {
+            publisherCf.setChannelCacheSize(channels.getPublisherCacheSize());
+            publisherCf.setChannelCheckoutTimeout(channels.getPublisherCheckoutTimeoutMs());
+        }
+        return connectionFactory;
+    }
+
     @Bean
     public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory,
-                                         Jackson2JsonMessageConverter converter) {
-        log.info("Creating RabbitTemplate with JSON message converter");
+                                         ContentTypeDelegatingMessageConverter converter) {
+        log.info("Creating RabbitTemplate with order event message converter");
         RabbitTemplate template = new RabbitTemplate(connectionFactory);
+        template.setUsePublisherConnection(props.getChannels().isSeparatePublisherConnection());
         template.setMessageConverter(converter);
+        template.setMandatory(true);
 
+        // outcomes are handled per message through the CorrelationData futures in OrderEventPublisher
         template.setConfirmCallback((correlationData, ack, cause) -> {
-            if (ack) {
-                log.debug("Message confirmed by broker: {}", correlationData);
-            } else {
-                log.error("Message rejected by broker: {}, cause: {}", correlationData, cause);
+            if (!ack) {
+                log.debug("Message rejected by broker: {}, cause: {}", correlationData, cause);
             }
         });
 
         template.setReturnsCallback(returned -> {
-            log.error("Message returned: {}", returned);
+            log.debug("Message returned: {}", returned);
         });
 
         return template;
@@ -110,20 +257,57 @@ public class RabbitMQConfig {
 
     @Bean
     public SimpleRabbitListenerContainerFactory rabbitListenerContainerFactory(ConnectionFactory cf,
-                                                                               Jackson2JsonMessageConverter converter) {
+                                                                               ContentTypeDelegatingMessageConverter converter,
+                                                                               MessageBatchRecoverer orderEventRecoverer) {
         log.info("Configuring RabbitListener Container Factory");
         SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
         factory.setConnectionFactory(cf);
         factory.setMessageConverter(converter);
         factory.setConcurrentConsumers(2);
         factory.setMaxConcurrentConsumers(10);
-        factory.setPrefetchCount(10);
+
+        ApplicationProperties.Listener listener = props.getListener();
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(listener.getBatchSize());
+        factory.setReceiveTimeout(listener.getReceiveTimeoutMs());
+        factory.setPrefetchCount(Math.max(10, listener.getBatchSize()));
 
         factory.setMissingQueuesFatal(false);
+        // no in-process retries: failed messages are acked and republished to a delayed retry tier
+        factory.setAdviceChain(RetryInterceptorBuilder.stateless()
+                .maxAttempts(1)
+                .recoverer(orderEventRecoverer)
+                .build());
+
+        if (Threading.VIRTUAL.isActive(environment)) {
+            factory.setTaskExecutor(new VirtualThreadTaskExecutor("rabbit-listener-"));
+        }
 
         return factory;
     }
 
+    @Bean
+    public MeterBinder rabbitChannelMetrics(ConnectionFactory connectionFactory) {
+        return registry -> {
+            if (!(connectionFactory instanceof CachingConnectionFactory ccf)) {
+                return;
+            }
+            idleChannelsGauge(registry, "consumer", ccf::getCacheProperties);
+            if (props.getChannels().isSeparatePublisherConnection()) {
+                idleChannelsGauge(registry, "publisher", ccf::getPublisherConnectionFactoryCacheProperties);
+            }
+        };
+    }
+
+    private static void idleChannelsGauge(MeterRegistry registry, String connection, Supplier<Properties> cacheProperties) {
+        Gauge.builder("rabbitmq.channels.idle", cacheProperties,
+                        cache -> cache.get().get("idleChannelsNotTx") instanceof Number idle ? idle.doubleValue() : 0)
+                .description("Cached channels free for checkout; 0 means callers wait for a channel")
+                .tag("connection", connection)
+                .register(registry);
+    }
+
     @Bean
     public AmqpAdmin amqpAdmin(ConnectionFactory connectionFactory) {
         log.info("Creating AmqpAdmin");
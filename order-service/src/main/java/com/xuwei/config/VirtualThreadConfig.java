@@ -0,0 +1,65 @@
+package com.xuwei.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.coyote.AbstractProtocol;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.util.concurrent.Executor;
+
+/**
+ * Active with {@code spring.threads.virtual.enabled=true}. Boot already moves Tomcat request handling
+ * onto virtual threads; here the async executors follow, gated by permits sized to the connection
+ * pool instead of by a thread count, and Tomcat accepts far more connections.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadConfig {
+
+    private final ApplicationProperties.VirtualThreads props;
+    private final int concurrencyLimit;
+
+    public VirtualThreadConfig(ApplicationProperties props, DataSource dataSource) {
+        this.props = props.getVirtualThreads();
+        int limit = this.props.getAsyncConcurrencyLimit();
+        if (limit <= 0) {
+            limit = dataSource instanceof HikariDataSource hikari ? hikari.getMaximumPoolSize() : 10;
+        }
+        this.concurrencyLimit = limit;
+        log.info("Virtual threads enabled, async concurrency limit {}", concurrencyLimit);
+    }
+
+    @Bean("orderAsyncExecutor")
+    public Executor orderAsyncExecutor() {
+        return virtualExecutor("order-async-", 60);
+    }
+
+    @Bean("batchAsyncExecutor")
+    public Executor batchAsyncExecutor() {
+        return virtualExecutor("batch-async-", 120);
+    }
+
+    @Bean
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> virtualThreadConnectorCustomizer() {
+        return factory -> factory.addConnectorCustomizers(connector -> {
+            if (connector.getProtocolHandler() instanceof AbstractProtocol<?> protocol) {
+                protocol.setMaxConnections(props.getMaxConnections());
+                protocol.setAcceptCount(props.getAcceptCount());
+            }
+        });
+    }
+
+    // tasks wait for a permit on their own virtual thread, so no more run than there are connections
+    // and submitters are rejected instead of blocked once too many are waiting
+    private PermitGatedTaskExecutor virtualExecutor(String threadNamePrefix, int awaitTerminationSeconds) {
+        return new PermitGatedTaskExecutor(threadNamePrefix, concurrencyLimit, props.getAsyncQueueCapacity(),
+                awaitTerminationSeconds * 1000L);
+    }
+}
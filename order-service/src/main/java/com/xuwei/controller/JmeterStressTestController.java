@@ -1,38 +1,87 @@
 package com.xuwei.controller;
 
+import com.xuwei.config.ApplicationProperties;
+import com.xuwei.config.PermitGatedTaskExecutor;
 import com.xuwei.dto.CreateOrderRequest;
 import com.xuwei.dto.JmeterTestResponse;
+import com.xuwei.events.OrderEventListener;
+import com.xuwei.service.BatchInsertBenchmark;
 import com.xuwei.service.OrderService;
-import lombok.RequiredArgsConstructor;
+import com.xuwei.utils.AdaptiveConcurrencyLimiter;
+import com.xuwei.utils.LatencyTimers;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @RestController
 @RequestMapping("/api/jmeter-test")
-@RequiredArgsConstructor
 public class JmeterStressTestController {
 
     private final OrderService orderService;
-    private final AtomicLong successCounter = new AtomicLong(0);
-    private final AtomicLong failureCounter = new AtomicLong(0);
-    private final AtomicLong totalOrdersCounter = new AtomicLong(0);
-    private final AtomicLong asyncQueueSize = new AtomicLong(0);
-    private final AtomicLong asyncProcessingTime = new AtomicLong(0);
+    private final BatchInsertBenchmark batchInsertBenchmark;
+    private final OrderEventListener orderEventListener;
+    private final MeterRegistry meterRegistry;
+    private final ApplicationProperties.Admission admissionProps;
+    private final AdaptiveConcurrencyLimiter admissionLimiter;
+    private final Counter admissionRejections;
 
     private final ConcurrentHashMap<String, Long> processingRequests = new ConcurrentHashMap<>();
 
-    @Qualifier("orderAsyncExecutor")
     private final Executor orderAsyncExecutor;
 
+    private volatile TestMeters meters;
+
+    public JmeterStressTestController(OrderService orderService,
+                                      BatchInsertBenchmark batchInsertBenchmark,
+                                      OrderEventListener orderEventListener,
+                                      MeterRegistry meterRegistry,
+                                      ApplicationProperties props,
+                                      @Qualifier("orderAsyncExecutor") Executor orderAsyncExecutor) {
+        this.orderService = orderService;
+        this.batchInsertBenchmark = batchInsertBenchmark;
+        this.orderEventListener = orderEventListener;
+        this.meterRegistry = meterRegistry;
+        this.orderAsyncExecutor = orderAsyncExecutor;
+        this.meters = registerMeters();
+
+        this.admissionProps = props.getAdmission();
+        this.admissionLimiter = new AdaptiveConcurrencyLimiter(admissionProps.getInitialLimit(),
+                admissionProps.getMinLimit(), admissionProps.getMaxLimit(),
+                admissionProps.getBackoffRatio(), admissionProps.getLatencyThresholdMs());
+        this.admissionRejections = Counter.builder("order.admission.rejected")
+                .description("Async order requests rejected with 429")
+                .register(meterRegistry);
+        Gauge.builder("order.admission.limit", admissionLimiter, AdaptiveConcurrencyLimiter::getLimit)
+                .register(meterRegistry);
+        Gauge.builder("order.admission.inflight", admissionLimiter, AdaptiveConcurrencyLimiter::getInflight)
+                .register(meterRegistry);
+        Gauge.builder("order.async.queue.size", this, JmeterStressTestController::asyncQueueSize)
+                .description("Tasks waiting in the orderAsyncExecutor queue")
+                .register(meterRegistry);
+        Gauge.builder("order.async.active", this, JmeterStressTestController::asyncActiveCount)
+                .description("Tasks running on the orderAsyncExecutor")
+                .register(meterRegistry);
+    }
+
     @PostMapping("/create-single-order-async")
     public ResponseEntity<JmeterTestResponse> createSingleOrderAsync() {
         long startTime = System.currentTimeMillis();
@@ -51,8 +100,10 @@ public class JmeterStressTestController {
                                 .build());
             }
 
+            if (admissionProps.isEnabled() && !admissionLimiter.tryAcquire()) {
+                return rejected("Too many async orders in flight, limit " + admissionLimiter.getLimit());
+            }
             processingRequests.put(requestId, startTime);
-            asyncQueueSize.incrementAndGet();
 
             CreateOrderRequest request = generateJmeterOrderRequest();
 
@@ -60,50 +111,63 @@ public class JmeterStressTestController {
             final long asyncStartTime = System.currentTimeMillis();
 
             CompletableFuture.runAsync(() -> {
+                boolean created = false;
                 try {
                     log.debug("Async processing started. RequestID: {}", finalRequestId);
 
                     String orderId = orderService.createOrderOptimized(request);
-                    successCounter.incrementAndGet();
-                    totalOrdersCounter.incrementAndGet();
+                    meters.success().increment();
 
                     long asyncEndTime = System.currentTimeMillis();
                     long asyncDuration = asyncEndTime - asyncStartTime;
-                    asyncProcessingTime.addAndGet(asyncDuration);
+                    meters.asyncProcessing().record(asyncDuration, TimeUnit.MILLISECONDS);
+                    created = true;
 
                     log.debug("Async order created: {} for user: {}. RequestID: {}, Duration: {}ms",
                             orderId, request.getUsername(), finalRequestId, asyncDuration);
 
                 } catch (Exception e) {
-                    failureCounter.incrementAndGet();
+                    meters.failure().increment();
                     log.error("Failed to create async order. RequestID: {}, Error: {}",
                             finalRequestId, e.getMessage());
                 } finally {
                     processingRequests.remove(finalRequestId);
-                    asyncQueueSize.decrementAndGet();
+                    if (admissionProps.isEnabled()) {
+                        admissionLimiter.onComplete(
+                                TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis() - asyncStartTime), created);
+                    }
                 }
             }, orderAsyncExecutor);
 
             success = true;
             log.debug("Async order submission completed. RequestID: {}", requestId);
 
+        } catch (RejectedExecutionException e) {
+            processingRequests.remove(requestId);
+            if (admissionProps.isEnabled()) {
+                admissionLimiter.release();
+            }
+            return rejected("Async executor saturated");
         } catch (Exception e) {
-            failureCounter.incrementAndGet();
+            meters.failure().increment();
             processingRequests.remove(requestId);
-            asyncQueueSize.decrementAndGet();
+            if (admissionProps.isEnabled()) {
+                admissionLimiter.release();
+            }
             log.error("Failed to submit async order. RequestID: {}, Error: {}",
                     requestId, e.getMessage());
         }
 
         long responseTime = System.currentTimeMillis() - startTime;
+        TestMeters current = meters;
 
         JmeterTestResponse response = JmeterTestResponse.builder()
                 .success(success)
                 .message(success ? "Order creation submitted" : "Failed to submit order")
                 .responseTimeMs(responseTime)
-                .totalSuccessOrders(successCounter.get())
-                .totalFailedOrders(failureCounter.get())
-                .totalOrders(totalOrdersCounter.get())
+                .totalSuccessOrders(current.successCount())
+                .totalFailedOrders(current.failureCount())
+                .totalOrders(current.totalCount())
                 .build();
 
         return success ?
@@ -124,21 +188,21 @@ public class JmeterStressTestController {
 
         try {
 
-            successCount = orderService.createOrdersInBatch(batchSize);
-            totalOrdersCounter.addAndGet(successCount);
-            successCounter.addAndGet(successCount);
+            successCount = meters.batch().recordCallable(() -> orderService.createOrdersInBatch(batchSize));
+            meters.success().increment(successCount);
 
             log.info("Batch order creation completed. RequestID: {}, SuccessCount: {}",
                     requestId, successCount);
 
         } catch (Exception e) {
             failureCount = batchSize;
-            failureCounter.addAndGet(failureCount);
+            meters.failure().increment(failureCount);
             log.error("Failed to create batch orders. RequestID: {}, Error: {}",
                     requestId, e.getMessage());
         }
 
         long responseTime = System.currentTimeMillis() - startTime;
+        TestMeters current = meters;
 
         JmeterTestResponse response = JmeterTestResponse.builder()
                 .success(failureCount == 0)
@@ -147,9 +211,9 @@ public class JmeterStressTestController {
                 .batchSize(batchSize)
                 .successCountInBatch(successCount)
                 .failedCountInBatch(failureCount)
-                .totalSuccessOrders(successCounter.get())
-                .totalFailedOrders(failureCounter.get())
-                .totalOrders(totalOrdersCounter.get())
+                .totalSuccessOrders(current.successCount())
+                .totalFailedOrders(current.failureCount())
+                .totalOrders(current.totalCount())
                 .build();
 
         return failureCount == 0 ?
@@ -157,26 +221,51 @@ public class JmeterStressTestController {
                 ResponseEntity.status(207).body(response);
     }
 
+    @PostMapping("/batch-insert-benchmark")
+    public ResponseEntity<JmeterTestResponse> batchInsertBenchmark(
+            @RequestParam(defaultValue = "500") int batchSize,
+            @RequestParam(defaultValue = "5") int rounds) {
+
+        long startTime = System.currentTimeMillis();
+        BatchInsertBenchmark.Result result = batchInsertBenchmark.run(batchSize, rounds);
+
+        JmeterTestResponse response = JmeterTestResponse.builder()
+                .success(true)
+                .message(String.format("Batched inserts: %.0f rows/sec vs %.0f rows/sec unbatched",
+                        result.rowsPerSecond(), result.baselineRowsPerSecond()))
+                .responseTimeMs(System.currentTimeMillis() - startTime)
+                .batchSize(batchSize)
+                .rowsPerSecond(result.rowsPerSecond())
+                .baselineRowsPerSecond(result.baselineRowsPerSecond())
+                .build();
+
+        return ResponseEntity.ok(response);
+    }
+
     @GetMapping("/stats")
     public ResponseEntity<JmeterTestResponse> getTestStats() {
-        long totalOrders = totalOrdersCounter.get();
+        TestMeters current = meters;
+        long totalOrders = current.totalCount();
         double successRate = totalOrders > 0 ?
-                (double) successCounter.get() / totalOrders : 0;
+                (double) current.successCount() / totalOrders : 0;
 
         int activeRequests = processingRequests.size();
-        long currentAsyncQueue = asyncQueueSize.get();
-        long avgAsyncProcessingTime = asyncProcessingTime.get() / Math.max(1, successCounter.get());
+        long currentAsyncQueue = asyncQueueSize();
+        long avgAsyncProcessingTime = (long) current.asyncProcessing().mean(TimeUnit.MILLISECONDS);
 
-        JmeterTestResponse response = JmeterTestResponse.builder()
+        JmeterTestResponse response = withAsyncPercentiles(JmeterTestResponse.builder(), current)
                 .success(true)
                 .message("Current test statistics")
-                .totalSuccessOrders(successCounter.get())
-                .totalFailedOrders(failureCounter.get())
+                .totalSuccessOrders(current.successCount())
+                .totalFailedOrders(current.failureCount())
                 .totalOrders(totalOrders)
                 .successRate(successRate)
                 .activeRequests(activeRequests)
                 .asyncQueueSize(currentAsyncQueue)
+                .admissionLimit(admissionLimiter.getLimit())
+                .admissionInflight(admissionLimiter.getInflight())
                 .avgAsyncProcessingTime(avgAsyncProcessingTime)
+                .consumerStats(orderEventListener.getStats())
                 .build();
 
         log.debug("Test stats queried. TotalOrders: {}, SuccessRate: {:.2f}%, AsyncQueue: {}, AvgAsyncTime: {}ms",
@@ -187,23 +276,26 @@ public class JmeterStressTestController {
 
     @GetMapping("/async-stats")
     public ResponseEntity<JmeterTestResponse> getAsyncStats() {
-        long totalOrders = totalOrdersCounter.get();
+        TestMeters current = meters;
+        long totalOrders = current.totalCount();
         double successRate = totalOrders > 0 ?
-                (double) successCounter.get() / totalOrders : 0;
+                (double) current.successCount() / totalOrders : 0;
 
         int activeRequests = processingRequests.size();
-        long currentAsyncQueue = asyncQueueSize.get();
-        long avgAsyncProcessingTime = asyncProcessingTime.get() / Math.max(1, successCounter.get());
+        long currentAsyncQueue = asyncQueueSize();
+        long avgAsyncProcessingTime = (long) current.asyncProcessing().mean(TimeUnit.MILLISECONDS);
 
-        JmeterTestResponse response = JmeterTestResponse.builder()
+        JmeterTestResponse response = withAsyncPercentiles(JmeterTestResponse.builder(), current)
                 .success(true)
                 .message("Async processing statistics")
-                .totalSuccessOrders(successCounter.get())
-                .totalFailedOrders(failureCounter.get())
+                .totalSuccessOrders(current.successCount())
+                .totalFailedOrders(current.failureCount())
                 .totalOrders(totalOrders)
                 .successRate(successRate)
                 .activeRequests(activeRequests)
                 .asyncQueueSize(currentAsyncQueue)
+                .admissionLimit(admissionLimiter.getLimit())
+                .admissionInflight(admissionLimiter.getInflight())
                 .avgAsyncProcessingTime(avgAsyncProcessingTime)
                 .build();
 
@@ -212,14 +304,7 @@ public class JmeterStressTestController {
 
     @PostMapping("/reset-counters")
     public ResponseEntity<JmeterTestResponse> resetCounters() {
-        long previousTotal = totalOrdersCounter.get();
-
-        successCounter.set(0);
-        failureCounter.set(0);
-        totalOrdersCounter.set(0);
-        asyncQueueSize.set(0);
-        asyncProcessingTime.set(0);
-        processingRequests.clear();
+        long previousTotal = resetMeters();
 
         JmeterTestResponse response = JmeterTestResponse.builder()
                 .success(true)
@@ -239,7 +324,7 @@ public class JmeterStressTestController {
                 .message("Service is healthy")
                 .timestamp(System.currentTimeMillis())
                 .activeRequests(processingRequests.size())
-                .asyncQueueSize(asyncQueueSize.get())
+                .asyncQueueSize(asyncQueueSize())
                 .build();
 
         return ResponseEntity.ok(response);
@@ -248,14 +333,7 @@ public class JmeterStressTestController {
     @PostMapping("/cleanup-test-data")
     public ResponseEntity<JmeterTestResponse> cleanupTestData() {
         try {
-            long previousTotal = totalOrdersCounter.get();
-
-            successCounter.set(0);
-            failureCounter.set(0);
-            totalOrdersCounter.set(0);
-            asyncQueueSize.set(0);
-            asyncProcessingTime.set(0);
-            processingRequests.clear();
+            long previousTotal = resetMeters();
 
             JmeterTestResponse response = JmeterTestResponse.builder()
                     .success(true)
@@ -277,6 +355,83 @@ public class JmeterStressTestController {
         }
     }
 
+    // Micrometer meters cannot be zeroed, so a reset drops them from the registry and starts fresh ones
+    private synchronized long resetMeters() {
+        TestMeters previous = meters;
+        long previousTotal = previous.totalCount();
+        previous.all().forEach(meterRegistry::remove);
+        meters = registerMeters();
+        processingRequests.clear();
+        return previousTotal;
+    }
+
+    private TestMeters registerMeters() {
+        return new TestMeters(
+                Counter.builder("jmeter.orders").tag("outcome", "success").register(meterRegistry),
+                Counter.builder("jmeter.orders").tag("outcome", "failure").register(meterRegistry),
+                LatencyTimers.register(meterRegistry, "jmeter.orders.async.processing",
+                        "Time from submission to completion of an async order", Tags.empty()),
+                LatencyTimers.register(meterRegistry, "jmeter.orders.batch",
+                        "Time to create one batch of orders", Tags.empty()));
+    }
+
+    private ResponseEntity<JmeterTestResponse> rejected(String message) {
+        admissionRejections.increment();
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(admissionProps.getRetryAfterSeconds()))
+                .body(JmeterTestResponse.builder()
+                        .success(false)
+                        .message(message)
+                        .admissionLimit(admissionLimiter.getLimit())
+                        .admissionInflight(admissionLimiter.getInflight())
+                        .build());
+    }
+
+    private long asyncQueueSize() {
+        return switch (orderAsyncExecutor) {
+            case ThreadPoolTaskExecutor executor -> executor.getQueueSize();
+            case PermitGatedTaskExecutor executor -> executor.getQueueSize();
+            default -> 0;
+        };
+    }
+
+    private long asyncActiveCount() {
+        return switch (orderAsyncExecutor) {
+            case ThreadPoolTaskExecutor executor -> executor.getActiveCount();
+            case PermitGatedTaskExecutor executor -> executor.getActiveCount();
+            default -> 0;
+        };
+    }
+
+    private JmeterTestResponse.JmeterTestResponseBuilder withAsyncPercentiles(
+            JmeterTestResponse.JmeterTestResponseBuilder builder, TestMeters current) {
+        Timer timer = current.asyncProcessing();
+        return builder
+                .asyncProcessingP50Ms(LatencyTimers.percentileMs(timer, 0.5))
+                .asyncProcessingP95Ms(LatencyTimers.percentileMs(timer, 0.95))
+                .asyncProcessingP99Ms(LatencyTimers.percentileMs(timer, 0.99))
+                .asyncProcessingP999Ms(LatencyTimers.percentileMs(timer, 0.999));
+    }
+
+    private record TestMeters(Counter success, Counter failure, Timer asyncProcessing, Timer batch) {
+
+        long successCount() {
+            return (long) success.count();
+        }
+
+        long failureCount() {
+            return (long) failure.count();
+        }
+
+        long totalCount() {
+            return successCount() + failureCount();
+        }
+
+        List<Meter> all() {
+            return List.of(success, failure, asyncProcessing, batch);
+        }
+    }
+
     private CreateOrderRequest generateJmeterOrderRequest() {
         long timestamp = System.currentTimeMillis();
         int randomSuffix = (int) (timestamp % 100000);
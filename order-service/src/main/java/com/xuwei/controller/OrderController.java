@@ -1,15 +1,33 @@
 package com.xuwei.controller;
 
+import com.xuwei.config.ApplicationProperties;
 import com.xuwei.dto.*;
+import com.xuwei.events.OrderEventReplayer;
+import com.xuwei.service.OrderBulkLoader;
+import com.xuwei.service.OrderExporter;
 import com.xuwei.service.OrderService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.concurrent.Callable;
 
 @RestController
 @RequestMapping("/api/orders")
@@ -17,6 +35,10 @@ import java.net.URI;
 public class OrderController {
 
     private final OrderService orderService;
+    private final OrderBulkLoader orderBulkLoader;
+    private final OrderExporter orderExporter;
+    private final OrderEventReplayer orderEventReplayer;
+    private final ApplicationProperties props;
 
     @PostMapping
     public ResponseEntity<CreateOrderResponse> createOrder(@Valid @RequestBody CreateOrderRequest req) {
@@ -24,6 +46,13 @@ public class OrderController {
         return ResponseEntity.created(URI.create("/api/orders/" + resp.getOrderNumber())).body(resp);
     }
 
+    @PostMapping(value = "/bulk", consumes = "application/x-ndjson")
+    public ResponseEntity<BulkIngestResponse> bulkCreateOrders(InputStream body,
+                                                               @RequestParam(defaultValue = "false") boolean publish)
+            throws IOException, SQLException {
+        return ResponseEntity.ok(orderBulkLoader.load(body, publish));
+    }
+
     @GetMapping
     public ResponseEntity<PagedResult<OrderResponse>> getAllOrders(@RequestParam(defaultValue = "0") int page,
                                                                    @RequestParam(defaultValue = "10") int size) {
@@ -31,6 +60,61 @@ public class OrderController {
         return ResponseEntity.ok(orderService.getAllOrders(pageable));
     }
 
+    @GetMapping(params = "cursor")
+    public ResponseEntity<CursorPage<OrderResponse>> getOrdersAfter(@RequestParam String cursor,
+                                                                    @RequestParam(defaultValue = "10") int size,
+                                                                    @RequestParam(defaultValue = "false") boolean estimate) {
+        if (size < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(orderService.getOrdersAfter(cursor, size, estimate));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportOrders(
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            HttpServletRequest request) {
+        // a full export outlives the default async timeout, which other async requests keep
+        long timeoutMs = props.getExport().getAsyncTimeoutMs();
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor("orderExportTimeout",
+                new CallableProcessingInterceptor() {
+                    @Override
+                    public <T> void beforeConcurrentHandling(NativeWebRequest webRequest, Callable<T> task) {
+                        if (webRequest instanceof AsyncWebRequest asyncRequest) {
+                            asyncRequest.setTimeout(timeoutMs);
+                        }
+                    }
+                });
+        StreamingResponseBody body = out -> orderExporter.export(status, from, to, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+
+    @PostMapping("/events/replay")
+    public ResponseEntity<ReplayStatus> replayEvents(@RequestParam(defaultValue = "ORDER_CREATED") String eventType,
+                                                     @RequestParam(defaultValue = "first") String offset) {
+        try {
+            return ResponseEntity.accepted().body(orderEventReplayer.start(eventType, offset));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    @GetMapping("/events/replay")
+    public ResponseEntity<ReplayStatus> replayStatus() {
+        ReplayStatus status = orderEventReplayer.status();
+        return status == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(status);
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<OrderResponse> getOrderById(@PathVariable Long id) {
         return orderService.getOrderById(id)
@@ -1,15 +1,21 @@
 package com.xuwei.controller;
 
+import com.xuwei.config.ApplicationProperties;
 import com.xuwei.events.OrderCreatedEvent;
+import com.xuwei.events.OrderEventPublisher;
+import com.xuwei.utils.OrderPartitions;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 @Slf4j
@@ -18,42 +24,48 @@ import java.util.concurrent.atomic.AtomicLong;
 @RequiredArgsConstructor
 public class SimpleStressTestController {
 
-    private final RabbitTemplate rabbitTemplate;
+    private final OrderEventPublisher eventPublisher;
+    private final ApplicationProperties props;
     private final AtomicLong messageCounter = new AtomicLong(0);
 
 
     @PostMapping("/send-messages")
     public ResponseEntity<String> sendMessages(
             @RequestParam(defaultValue = "1000") int count,
-            @RequestParam(defaultValue = "new-orders") String queueName) {
-
-        log.info("Starting stress test: sending {} messages to queue: {}", count, queueName);
+            @RequestParam(required = false) String queueName) {
+        log.info("Starting stress test: sending {} messages to queue: {}", count,
+                queueName != null ? queueName : props.getNewOrdersQueue());
 
         long startTime = System.currentTimeMillis();
-        
+
+        // pipelined: sends run ahead of the confirms up to the publisher window
+        List<CompletableFuture<Boolean>> pending = new ArrayList<>(count);
         for (int i = 0; i < count; i++) {
+            OrderCreatedEvent event = createTestEvent(i);
+            String routingKey = queueName != null ? queueName : newOrdersRoutingKey(event);
+            pending.add(eventPublisher.publish(routingKey, event, event.getEventId()));
+        }
+        long confirmed = 0;
+        for (CompletableFuture<Boolean> future : pending) {
             try {
-                OrderCreatedEvent event = createTestEvent(i);
-                rabbitTemplate.convertAndSend("orders-exchange", queueName, event);
-                messageCounter.incrementAndGet();
-
-                if (i % 100 == 0) {
-                    log.info("Sent {}/{} messages", i, count);
+                if (future.get(props.getPublisher().getConfirmTimeoutMs(), TimeUnit.MILLISECONDS)) {
+                    confirmed++;
                 }
             } catch (Exception e) {
-                log.error("Failed to send message {}: {}", i, e.getMessage());
+                log.debug("Stress message not confirmed: {}", e.getMessage());
             }
         }
-        
+        messageCounter.addAndGet(confirmed);
+
         long endTime = System.currentTimeMillis();
         long duration = endTime - startTime;
         double rate = (double) count / (duration / 1000.0);
-        
-        log.info("Stress test completed: {} messages in {}ms ({} msg/sec)",
-                count, duration, String.format("%.2f", rate));
-        
+
+        log.info("Stress test completed: {}/{} messages confirmed in {}ms ({} msg/sec)",
+                confirmed, count, duration, String.format("%.2f", rate));
+
         return ResponseEntity.ok(String.format(
-            "Sent %d messages in %d ms (%.2f msg/sec)", count, duration, rate));
+            "Sent %d messages (%d confirmed) in %d ms (%.2f msg/sec)", count, confirmed, duration, rate));
     }
 
 
@@ -73,9 +85,13 @@ public class SimpleStressTestController {
             while (System.currentTimeMillis() < endTime) {
                 try {
                     OrderCreatedEvent event = createTestEvent((int) totalSent);
-                    rabbitTemplate.convertAndSend("orders-exchange", "new-orders", event);
+                    eventPublisher.publish(newOrdersRoutingKey(event), event, event.getEventId())
+                            .thenAccept(ok -> {
+                                if (ok) {
+                                    messageCounter.incrementAndGet();
+                                }
+                            });
                     totalSent++;
-                    messageCounter.incrementAndGet();
                     
                     Thread.sleep(intervalMs);
                 } catch (Exception e) {
@@ -94,8 +110,14 @@ public class SimpleStressTestController {
         return ResponseEntity.ok("Total messages sent: " + messageCounter.get());
     }
 
+    private String newOrdersRoutingKey(OrderCreatedEvent event) {
+        return OrderPartitions.queueFor(props.getNewOrdersQueue(), props.getNewOrdersPartitions(),
+                event.getOrderNumber());
+    }
+
     private OrderCreatedEvent createTestEvent(int index) {
         OrderCreatedEvent event = new OrderCreatedEvent();
+        event.setEventId(UUID.randomUUID().toString());
         event.setOrderNumber("STRESS-" + UUID.randomUUID().toString().substring(0, 8));
         event.setUsername("stress-user");
         event.setTotalPrice(new BigDecimal("99.99"));
@@ -0,0 +1,26 @@
+package com.xuwei.controller;
+
+import com.xuwei.service.TaskServiceClient;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/task-cache")
+@RequiredArgsConstructor
+public class TaskCacheController {
+
+    private final TaskServiceClient taskServiceClient;
+
+    @DeleteMapping("/{taskId}")
+    public ResponseEntity<Void> invalidate(@PathVariable Long taskId) {
+        taskServiceClient.invalidate(taskId);
+        return ResponseEntity.noContent().build();
+    }
+
+    @DeleteMapping
+    public ResponseEntity<Void> invalidateAll() {
+        taskServiceClient.invalidateAll();
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,18 @@
+package com.xuwei.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkIngestResponse {
+    private long ordersLoaded;
+    private long eventsLoaded;
+    private long rejectedLines;
+    private long durationMs;
+    private double rowsPerSecond;
+}
@@ -1,5 +1,6 @@
 package com.xuwei.dto;
 
+import com.xuwei.events.OrderEventListener;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -29,4 +30,15 @@ public class JmeterTestResponse {
     private Integer activeRequests;
     private Long asyncQueueSize;
     private Long avgAsyncProcessingTime;
+    private Double asyncProcessingP50Ms;
+    private Double asyncProcessingP95Ms;
+    private Double asyncProcessingP99Ms;
+    private Double asyncProcessingP999Ms;
+    private Integer admissionLimit;
+    private Integer admissionInflight;
+
+    private Double rowsPerSecond;
+    private Double baselineRowsPerSecond;
+
+    private OrderEventListener.OrderEventListenerStats consumerStats;
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+package com.xuwei.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReplayStatus {
+    private String eventType;
+    private List<String> queues;
+    private String offset;
+    private boolean running;
+    private long eventsReplayed;
+    private long eventsUndecodable;
+    private long batchesFailed;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+}
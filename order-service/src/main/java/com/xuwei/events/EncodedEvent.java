@@ -0,0 +1,7 @@
+package com.xuwei.events;
+
+/**
+ * An order event together with the bytes it travels as, so it can be logged without encoding it again.
+ */
+public record EncodedEvent(Object event, String contentType, byte[] body) {
+}
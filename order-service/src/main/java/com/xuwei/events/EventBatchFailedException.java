@@ -0,0 +1,22 @@
+package com.xuwei.events;
+
+import java.util.Map;
+
+/**
+ * Thrown by {@link OrderEventListener} when some events of a batch could not be processed. The
+ * rest of the batch is committed; the failures are keyed by the message's position in the batch so
+ * the recoverer only sends those messages to retry.
+ */
+public class EventBatchFailedException extends RuntimeException {
+
+    private final Map<Integer, RuntimeException> failures;
+
+    public EventBatchFailedException(String eventType, Map<Integer, RuntimeException> failures) {
+        super(failures.size() + " " + eventType + " events failed", failures.values().iterator().next());
+        this.failures = Map.copyOf(failures);
+    }
+
+    public Map<Integer, RuntimeException> getFailures() {
+        return failures;
+    }
+}
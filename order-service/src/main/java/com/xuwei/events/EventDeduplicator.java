@@ -0,0 +1,122 @@
+package com.xuwei.events;
+
+import com.xuwei.config.ApplicationProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Drops events whose id has already been processed. Ids are claimed in {@code processed_events} in the
+ * caller's transaction, so a batch that rolls back releases its ids for the redelivery.
+ */
+@Slf4j
+@Component
+public class EventDeduplicator {
+
+    private static final String CLAIM = """
+            insert into processed_events (event_id, event_type, processed_at)
+            select e.event_id, ?, now() from unnest(?::text[]) as e(event_id)
+            on conflict (event_id) do nothing
+            returning event_id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationProperties properties;
+    private final Map<String, Boolean> recentIds;
+
+    public EventDeduplicator(JdbcTemplate jdbcTemplate, ApplicationProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
+        int maxSize = properties.getDedup().getRecentCacheSize();
+        this.recentIds = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > maxSize;
+            }
+        });
+    }
+
+    /**
+     * Returns the events seen for the first time, in their original order. Must run inside the
+     * transaction that processes them. Events without an id are always kept.
+     */
+    public List<EncodedEvent> filter(String eventType, List<EncodedEvent> events) {
+        Map<String, EncodedEvent> candidates = new LinkedHashMap<>();
+        List<EncodedEvent> fresh = new ArrayList<>(events.size());
+        for (EncodedEvent event : events) {
+            String eventId = event.event() instanceof OrderEvent orderEvent ? orderEvent.getEventId() : null;
+            if (eventId == null) {
+                fresh.add(event);
+            } else if (!recentIds.containsKey(eventId)) {
+                candidates.putIfAbsent(eventId, event);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return fresh;
+        }
+
+        Set<String> claimed = claim(eventType, candidates.keySet().toArray(String[]::new));
+        candidates.forEach((eventId, event) -> {
+            if (claimed.contains(eventId)) {
+                fresh.add(event);
+            }
+        });
+        remember(claimed);
+        return fresh;
+    }
+
+    @Scheduled(fixedDelayString = "#{@applicationProperties.dedup.pruneIntervalMs}")
+    public void prune() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(Duration.ofHours(properties.getDedup().getRetentionHours()));
+        int deleted = jdbcTemplate.update("delete from processed_events where processed_at < ?",
+                Timestamp.valueOf(cutoff));
+        if (deleted > 0) {
+            log.info("Pruned {} processed event ids older than {}", deleted, cutoff);
+        }
+    }
+
+    private Set<String> claim(String eventType, String[] eventIds) {
+        Set<String> claimed = new HashSet<>();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(CLAIM);
+            ps.setString(1, eventType);
+            ps.setArray(2, connection.createArrayOf("text", eventIds));
+            return ps;
+        }, rs -> {
+            claimed.add(rs.getString(1));
+        });
+        return claimed;
+    }
+
+    // only cache ids once the claim is durable, otherwise a rolled back batch would be skipped on redelivery
+    private void remember(Set<String> eventIds) {
+        if (eventIds.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            eventIds.forEach(eventId -> recentIds.put(eventId, Boolean.TRUE));
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                eventIds.forEach(eventId -> recentIds.put(eventId, Boolean.TRUE));
+            }
+        });
+    }
+}
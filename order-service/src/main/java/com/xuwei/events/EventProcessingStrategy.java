@@ -0,0 +1,14 @@
+package com.xuwei.events;
+
+import java.util.List;
+
+/**
+ * What a consumer does with a batch of order events once they are received. Selected with
+ * {@code app.event-processing.strategy}; called inside the batch transaction.
+ */
+public interface EventProcessingStrategy {
+
+    String name();
+
+    void process(String eventType, List<EncodedEvent> events);
+}
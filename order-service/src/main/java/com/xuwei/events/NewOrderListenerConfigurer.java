@@ -0,0 +1,39 @@
+package com.xuwei.events;
+
+import com.xuwei.config.ApplicationProperties;
+import com.xuwei.utils.OrderPartitions;
+import lombok.RequiredArgsConstructor;
+import org.springframework.amqp.core.BatchMessageListener;
+import org.springframework.amqp.rabbit.annotation.RabbitListenerConfigurer;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerEndpoint;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistrar;
+import org.springframework.stereotype.Component;
+
+/**
+ * Registers one listener container per new-order partition. With more than one partition each
+ * container runs a single consumer, so events of the same order are handled in the order they were
+ * published while throughput scales with the partition count.
+ */
+@Component
+@RequiredArgsConstructor
+public class NewOrderListenerConfigurer implements RabbitListenerConfigurer {
+
+    private final OrderEventListener orderEventListener;
+    private final ApplicationProperties props;
+
+    @Override
+    public void configureRabbitListeners(RabbitListenerEndpointRegistrar registrar) {
+        int partitions = props.getNewOrdersPartitions();
+        for (String queueName : OrderPartitions.queueNames(props.getNewOrdersQueue(), partitions)) {
+            SimpleRabbitListenerEndpoint endpoint = new SimpleRabbitListenerEndpoint();
+            endpoint.setId("new-orders:" + queueName);
+            endpoint.setQueueNames(queueName);
+            endpoint.setBatchListener(true);
+            if (partitions > 1) {
+                endpoint.setConcurrency("1");
+            }
+            endpoint.setMessageListener((BatchMessageListener) orderEventListener::handleNewOrderEvents);
+            registrar.registerEndpoint(endpoint);
+        }
+    }
+}
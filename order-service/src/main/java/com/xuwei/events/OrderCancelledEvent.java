@@ -4,7 +4,8 @@ import lombok.Data;
 import java.time.LocalDateTime;
 
 @Data
-public class OrderCancelledEvent {
+public class OrderCancelledEvent implements OrderEvent {
+    private String eventId;
     private String orderNumber;
     private String reason;
     private LocalDateTime cancelledAt;
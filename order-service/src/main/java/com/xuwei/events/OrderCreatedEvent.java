@@ -10,7 +10,8 @@ import java.time.LocalDateTime;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-public class OrderCreatedEvent {
+public class OrderCreatedEvent implements OrderEvent {
+    private String eventId;
     private String orderNumber;
     private String username;
     private BigDecimal totalPrice;
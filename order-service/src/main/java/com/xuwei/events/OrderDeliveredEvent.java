@@ -4,7 +4,8 @@ import lombok.Data;
 import java.time.LocalDateTime;
 
 @Data
-public class OrderDeliveredEvent {
+public class OrderDeliveredEvent implements OrderEvent {
+    private String eventId;
     private String orderNumber;
     private String deliveryPerson;
     private LocalDateTime deliveredAt;
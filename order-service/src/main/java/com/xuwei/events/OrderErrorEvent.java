@@ -4,7 +4,8 @@ import lombok.Data;
 import java.time.LocalDateTime;
 
 @Data
-public class OrderErrorEvent {
+public class OrderErrorEvent implements OrderEvent {
+    private String eventId;
     private String orderNumber;
     private String errorMessage;
     private LocalDateTime occurredAt;
@@ -0,0 +1,14 @@
+package com.xuwei.events;
+
+/**
+ * Common shape of the events published on the order exchange. {@code eventId} is assigned once by
+ * the producer and stays the same across redeliveries, so consumers can use it for deduplication.
+ */
+public interface OrderEvent {
+
+    String getEventId();
+
+    void setEventId(String eventId);
+
+    String getOrderNumber();
+}
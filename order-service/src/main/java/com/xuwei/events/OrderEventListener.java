@@ -1,285 +1,175 @@
 package com.xuwei.events;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.xuwei.model.OrderEntity;
-import com.xuwei.model.OrderEventEntity;
-import com.xuwei.repository.OrderEventRepository;
-import com.xuwei.repository.OrderRepository;
+import com.xuwei.utils.LatencyTimers;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.converter.MessageConversionException;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.time.LocalDateTime;
-import java.util.Optional;
-import java.util.UUID;
-import java.util.concurrent.Executors;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.atomic.AtomicInteger;
 
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class OrderEventListener {
 
-    private final ObjectMapper objectMapper;
-    private final OrderRepository orderRepository;
-    private final OrderEventRepository orderEventRepository;
+    private final EventProcessingStrategy processingStrategy;
+    private final EventDeduplicator deduplicator;
+    private final EventCodec eventCodec;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
 
-    private final AtomicLong newOrdersProcessed = new AtomicLong(0);
-    private final AtomicLong deliveredOrdersProcessed = new AtomicLong(0);
-    private final AtomicLong cancelledOrdersProcessed = new AtomicLong(0);
-    private final AtomicLong errorOrdersProcessed = new AtomicLong(0);
+    private final Map<String, EventMeters> meters = new ConcurrentHashMap<>();
 
-    private final AtomicInteger newOrdersCurrentRate = new AtomicInteger(0);
-    private final AtomicInteger deliveredOrdersCurrentRate = new AtomicInteger(0);
-    private final AtomicInteger cancelledOrdersCurrentRate = new AtomicInteger(0);
-    private final AtomicInteger errorOrdersCurrentRate = new AtomicInteger(0);
-
-    private final AtomicLong totalNewOrderProcessingTime = new AtomicLong(0);
-    private final AtomicLong slowProcessingCount = new AtomicLong(0);
-
-    private final boolean saveEventsToDatabase = true;
-    private final boolean saveOrdersFromEvents = false;
-
-    @RabbitListener(queues = "#{@applicationProperties.newOrdersQueue}")
-    public void handleNewOrderEvent(OrderCreatedEvent event) {
-        long startTime = System.currentTimeMillis();
-
-        try {
-
-            if (saveEventsToDatabase) {
-                saveEventToDatabase(event, "ORDER_CREATED");
-            }
-
-            if (saveOrdersFromEvents) {
-                saveOrderFromEvent(event);
-            }
-
-            Thread.sleep(5);
-
-            log.debug("[NEW ORDER] Processed event: orderNumber={}, user={}, totalPrice={}",
-                    event.getOrderNumber(), event.getUsername(), event.getTotalPrice());
-
-            newOrdersProcessed.incrementAndGet();
-            newOrdersCurrentRate.incrementAndGet();
-
-        } catch (Exception e) {
-            log.error("Error processing new order event: {}", e.getMessage());
-        } finally {
-
-            long processingTime = System.currentTimeMillis() - startTime;
-            totalNewOrderProcessingTime.addAndGet(processingTime);
-
-            if (processingTime > 100) {
-                slowProcessingCount.incrementAndGet();
-                log.warn("Slow new order processing: {}ms for order {}", processingTime, event.getOrderNumber());
-            }
-        }
+    // registered per partition by NewOrderListenerConfigurer
+    public void handleNewOrderEvents(List<Message> messages) {
+        handle("ORDER_CREATED", messages, OrderCreatedEvent.class, 100);
     }
 
     @RabbitListener(queues = "#{@applicationProperties.deliveredOrdersQueue}")
-    public void handleDeliveredOrderEvent(OrderDeliveredEvent event) {
-        long startTime = System.currentTimeMillis();
-
-        try {
-
-            if (saveEventsToDatabase) {
-                saveEventToDatabase(event, "ORDER_DELIVERED");
-            }
-
-            Thread.sleep(3);
-
-            log.debug("[DELIVERED ORDER] Processed event: orderNumber={}, deliveryPerson={}, deliveredAt={}",
-                    event.getOrderNumber(), event.getDeliveryPerson(), event.getDeliveredAt());
-
-            deliveredOrdersProcessed.incrementAndGet();
-            deliveredOrdersCurrentRate.incrementAndGet();
-
-        } catch (Exception e) {
-            log.error("Error processing delivered order event: {}", e.getMessage());
-        } finally {
-            long processingTime = System.currentTimeMillis() - startTime;
-            if (processingTime > 50) {
-                log.warn("Slow delivered order processing: {}ms", processingTime);
-            }
-        }
+    public void handleDeliveredOrderEvents(List<Message> messages) {
+        handle("ORDER_DELIVERED", messages, OrderDeliveredEvent.class, 50);
     }
 
     @RabbitListener(queues = "#{@applicationProperties.cancelledOrdersQueue}")
-    public void handleCancelledOrderEvent(OrderCancelledEvent event) {
-        long startTime = System.currentTimeMillis();
-
-        try {
-
-            if (saveEventsToDatabase) {
-                saveEventToDatabase(event, "ORDER_CANCELLED");
-            }
-
-            Thread.sleep(3);
-
-            log.debug("[CANCELLED ORDER] Processed event: orderNumber={}, reason={}, cancelledAt={}",
-                    event.getOrderNumber(), event.getReason(), event.getCancelledAt());
-
-            cancelledOrdersProcessed.incrementAndGet();
-            cancelledOrdersCurrentRate.incrementAndGet();
-
-        } catch (Exception e) {
-            log.error("Error processing cancelled order event: {}", e.getMessage());
-        } finally {
-            long processingTime = System.currentTimeMillis() - startTime;
-            if (processingTime > 50) {
-                log.warn("Slow cancelled order processing: {}ms", processingTime);
-            }
-        }
+    public void handleCancelledOrderEvents(List<Message> messages) {
+        handle("ORDER_CANCELLED", messages, OrderCancelledEvent.class, 50);
     }
 
     @RabbitListener(queues = "#{@applicationProperties.errorOrdersQueue}")
-    public void handleErrorOrderEvent(OrderErrorEvent event) {
-        long startTime = System.currentTimeMillis();
+    public void handleErrorOrderEvents(List<Message> messages) {
+        handle("ORDER_ERROR", messages, OrderErrorEvent.class, 50);
+    }
 
+    /**
+     * Processes the batch in one transaction. If that fails, every event is retried on its own so one
+     * bad event does not hold back the others; whatever still fails is reported through
+     * {@link EventBatchFailedException} and handed to the retry recoverer by the container.
+     */
+    private void handle(String eventType, List<Message> messages, Class<?> type, long slowThresholdMs) {
+        EventMeters eventMeters = meters(eventType);
+        long startTime = System.nanoTime();
+        Map<Integer, RuntimeException> failures = new LinkedHashMap<>();
+        // raw messages so the received bytes can be recorded as-is; the content type picks the decoder
+        List<EncodedEvent> events = new ArrayList<>(messages.size());
+        List<Integer> positions = new ArrayList<>(messages.size());
+        for (int i = 0; i < messages.size(); i++) {
+            try {
+                events.add(eventCodec.decode(messages.get(i), type));
+                positions.add(i);
+            } catch (MessageConversionException e) {
+                failures.put(i, e);
+            }
+        }
         try {
-
-            if (saveEventsToDatabase) {
-                saveEventToDatabase(event, "ORDER_ERROR");
+            int processed;
+            try {
+                processed = process(eventType, events);
+            } catch (RuntimeException e) {
+                log.warn("Batch of {} {} events failed, processing them one by one: {}",
+                        events.size(), eventType, e.getMessage());
+                processed = 0;
+                for (int i = 0; i < events.size(); i++) {
+                    try {
+                        processed += process(eventType, List.of(events.get(i)));
+                    } catch (RuntimeException single) {
+                        failures.put(positions.get(i), single);
+                    }
+                }
+            }
+            eventMeters.processed().increment(processed);
+            eventMeters.duplicates().increment(messages.size() - failures.size() - processed);
+            if (!failures.isEmpty()) {
+                eventMeters.failed().increment(failures.size());
+                throw new EventBatchFailedException(eventType, failures);
             }
-
-            Thread.sleep(5);
-
-            log.debug("[ERROR ORDER] Processed event: orderNumber={}, errorMessage={}, occurredAt={}",
-                    event.getOrderNumber(), event.getErrorMessage(), event.getOccurredAt());
-
-            errorOrdersProcessed.incrementAndGet();
-            errorOrdersCurrentRate.incrementAndGet();
-
-        } catch (Exception e) {
-            log.error("Error processing error order event: {}", e.getMessage());
         } finally {
-            long processingTime = System.currentTimeMillis() - startTime;
-            if (processingTime > 50) {
-                log.warn("Slow error order processing: {}ms", processingTime);
+            long processingTime = System.nanoTime() - startTime;
+            eventMeters.batchTimer().record(processingTime, TimeUnit.NANOSECONDS);
+            if (TimeUnit.NANOSECONDS.toMillis(processingTime) > slowThresholdMs) {
+                eventMeters.slow().increment();
+                log.warn("Slow {} processing: {}ms for {} events",
+                        eventType, TimeUnit.NANOSECONDS.toMillis(processingTime), messages.size());
             }
         }
     }
 
-    private void saveEventToDatabase(Object event, String eventType) {
-        try {
-            String orderNumber = extractOrderNumber(event);
-
-            OrderEventEntity eventEntity = new OrderEventEntity();
-            eventEntity.setOrderNumber(orderNumber);
-            eventEntity.setEventId(UUID.randomUUID().toString());
-            eventEntity.setEventType(eventType);
-            eventEntity.setPayload(objectMapper.writeValueAsString(event));
-            eventEntity.setCreatedAt(LocalDateTime.now());
-
-            orderEventRepository.save(eventEntity);
-
-            log.trace("Saved {} event to database for order: {}", eventType, orderNumber);
-
-        } catch (Exception e) {
-            log.error("Failed to save event to database: {}", e.getMessage());
-        }
-    }
-
-
-    private String extractOrderNumber(Object event) {
-        if (event instanceof OrderCreatedEvent) {
-            return ((OrderCreatedEvent) event).getOrderNumber();
-        } else if (event instanceof OrderDeliveredEvent) {
-            return ((OrderDeliveredEvent) event).getOrderNumber();
-        } else if (event instanceof OrderCancelledEvent) {
-            return ((OrderCancelledEvent) event).getOrderNumber();
-        } else if (event instanceof OrderErrorEvent) {
-            return ((OrderErrorEvent) event).getOrderNumber();
+    private int process(String eventType, List<EncodedEvent> events) {
+        if (events.isEmpty()) {
+            return 0;
         }
-        return "UNKNOWN";
-    }
-
-
-    private void saveOrderFromEvent(OrderCreatedEvent event) {
-        try {
-
-            Optional<OrderEntity> existingOrder = orderRepository.findByOrderNumber(event.getOrderNumber());
-            if (existingOrder.isPresent()) {
-                log.debug("Order already exists: {}", event.getOrderNumber());
-                return;
+        Integer processed = transactionTemplate.execute(status -> {
+            List<EncodedEvent> fresh = deduplicator.filter(eventType, events);
+            if (!fresh.isEmpty()) {
+                processingStrategy.process(eventType, fresh);
             }
-
-            OrderEntity order = new OrderEntity();
-            order.setOrderNumber(event.getOrderNumber());
-            order.setUsername(event.getUsername());
-            order.setCustomerName("Customer from Event");
-            order.setCustomerEmail("event@" + event.getOrderNumber() + ".com");
-            order.setCustomerPhone("0000000000");
-            order.setDeliveryAddressLine1("Event Address");
-            order.setDeliveryAddressCity("Event City");
-            order.setDeliveryAddressState("ES");
-            order.setDeliveryAddressZipCode("00000");
-            order.setDeliveryAddressCountry("US");
-            order.setStatus("CREATED_FROM_EVENT");
-            order.setTotalPrice(event.getTotalPrice());
-            order.setComments("Created from RabbitMQ event during stress test");
-
-            orderRepository.save(order);
-            log.debug("Saved order from event: {}", event.getOrderNumber());
-
-        } catch (Exception e) {
-            log.error("Failed to save order from event: {}", e.getMessage());
-        }
+            return fresh.size();
+        });
+        int count = processed == null ? 0 : processed;
+        log.debug("Processed batch of {} {} events with strategy {}, {} duplicates skipped",
+                events.size(), eventType, processingStrategy.name(), events.size() - count);
+        return count;
     }
 
+    private EventMeters meters(String eventType) {
+        return meters.computeIfAbsent(eventType, type -> {
+            Tags tags = Tags.of("event.type", type);
+            return new EventMeters(
+                    LatencyTimers.register(meterRegistry, "order.events.batch",
+                            "Time to process one batch of order events", tags),
+                    outcomeCounter(tags, "success"),
+                    outcomeCounter(tags, "duplicate"),
+                    outcomeCounter(tags, "failure"),
+                    Counter.builder("order.events.batch.slow").tags(tags).register(meterRegistry));
+        });
+    }
 
-    private void startPerformanceMonitor() {
-        Executors.newSingleThreadScheduledExecutor().scheduleAtFixedRate(() -> {
-
-            int newOrdersRate = newOrdersCurrentRate.getAndSet(0);
-            int deliveredOrdersRate = deliveredOrdersCurrentRate.getAndSet(0);
-            int cancelledOrdersRate = cancelledOrdersCurrentRate.getAndSet(0);
-            int errorOrdersRate = errorOrdersCurrentRate.getAndSet(0);
-
-            long totalNew = newOrdersProcessed.get();
-            long avgProcessingTime = totalNew > 0 ?
-                    totalNewOrderProcessingTime.get() / totalNew : 0;
-
-            if (newOrdersRate > 0 || deliveredOrdersRate > 0 ||
-                    cancelledOrdersRate > 0 || errorOrdersRate > 0) {
-
-                log.info("📊 ORDER EVENT PERFORMANCE METRICS:");
-                log.info("   New Orders: {}/sec (total: {}, avg: {}ms, slow: {})",
-                        newOrdersRate, totalNew, avgProcessingTime, slowProcessingCount.get());
-                log.info("   Delivered Orders: {}/sec (total: {})",
-                        deliveredOrdersRate, deliveredOrdersProcessed.get());
-                log.info("   Cancelled Orders: {}/sec (total: {})",
-                        cancelledOrdersRate, cancelledOrdersProcessed.get());
-                log.info("   Error Orders: {}/sec (total: {})",
-                        errorOrdersRate, errorOrdersProcessed.get());
-                log.info("   ---");
-            }
-
-        }, 1, 1, TimeUnit.SECONDS); // 每秒执行一次
+    private Counter outcomeCounter(Tags tags, String outcome) {
+        return Counter.builder("order.events.processed")
+                .tags(tags.and("outcome", outcome))
+                .register(meterRegistry);
     }
 
     public OrderEventListenerStats getStats() {
-        long totalNew = newOrdersProcessed.get();
-        long avgProcessingTime = totalNew > 0 ?
-                totalNewOrderProcessingTime.get() / totalNew : 0;
+        EventMeters newOrders = meters("ORDER_CREATED");
+        Timer batchTimer = newOrders.batchTimer();
 
         return OrderEventListenerStats.builder()
-                .newOrdersProcessed(totalNew)
-                .deliveredOrdersProcessed(deliveredOrdersProcessed.get())
-                .cancelledOrdersProcessed(cancelledOrdersProcessed.get())
-                .errorOrdersProcessed(errorOrdersProcessed.get())
-                .averageProcessingTimeMs(avgProcessingTime)
-                .slowProcessingCount(slowProcessingCount.get())
+                .newOrdersProcessed((long) newOrders.processed().count())
+                .deliveredOrdersProcessed((long) meters("ORDER_DELIVERED").processed().count())
+                .cancelledOrdersProcessed((long) meters("ORDER_CANCELLED").processed().count())
+                .errorOrdersProcessed((long) meters("ORDER_ERROR").processed().count())
+                .averageProcessingTimeMs((long) batchTimer.mean(TimeUnit.MILLISECONDS))
+                .p50ProcessingTimeMs(LatencyTimers.percentileMs(batchTimer, 0.5))
+                .p95ProcessingTimeMs(LatencyTimers.percentileMs(batchTimer, 0.95))
+                .p99ProcessingTimeMs(LatencyTimers.percentileMs(batchTimer, 0.99))
+                .p999ProcessingTimeMs(LatencyTimers.percentileMs(batchTimer, 0.999))
+                .slowProcessingCount(meters.values().stream().mapToLong(m -> (long) m.slow().count()).sum())
+                .duplicatesSkipped(meters.values().stream().mapToLong(m -> (long) m.duplicates().count()).sum())
+                .processingStrategy(processingStrategy.name())
                 .build();
     }
 
+    private record EventMeters(Timer batchTimer, Counter processed, Counter duplicates,
+                               Counter failed, Counter slow) {
+    }
+
     @Data
     @Builder
     @AllArgsConstructor
@@ -290,7 +180,13 @@ public class OrderEventListener {
         private long cancelledOrdersProcessed;
         private long errorOrdersProcessed;
         private long averageProcessingTimeMs;
+        private double p50ProcessingTimeMs;
+        private double p95ProcessingTimeMs;
+        private double p99ProcessingTimeMs;
+        private double p999ProcessingTimeMs;
         private long slowProcessingCount;
+        private long duplicatesSkipped;
+        private String processingStrategy;
         @Builder.Default
         private long timestamp = System.currentTimeMillis();
     }
@@ -0,0 +1,127 @@
+package com.xuwei.events;
+
+import com.xuwei.config.ApplicationProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps the daily partitions of {@code order_events} ahead of the clock and removes the ones past
+ * retention, so cleanup is a partition drop instead of a large DELETE.
+ */
+@Slf4j
+@Component
+public class OrderEventPartitionManager {
+
+    private static final String PREFIX = "order_events_p";
+    private static final Pattern PARTITION_NAME = Pattern.compile(PREFIX + "(\\d{8})");
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationProperties.EventPartitions props;
+    private final Counter failures;
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+    public OrderEventPartitionManager(JdbcTemplate jdbcTemplate,
+                                      TransactionTemplate transactionTemplate,
+                                      ApplicationProperties props,
+                                      MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.props = props.getEventPartitions();
+        this.failures = Counter.builder("order.events.partition.failures").register(meterRegistry);
+        Gauge.builder("order.events.partition.failing.runs", consecutiveFailures, AtomicInteger::get)
+                .register(meterRegistry);
+    }
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "#{@applicationProperties.eventPartitions.maintenanceIntervalMs}")
+    public void maintain() {
+        LocalDate today = LocalDate.now();
+        boolean healthy = true;
+        for (int i = 0; i <= props.getPremakeDays(); i++) {
+            healthy &= createPartition(today.plusDays(i));
+        }
+        if (healthy) {
+            consecutiveFailures.set(0);
+        } else if (consecutiveFailures.incrementAndGet() > 1) {
+            log.error("Partition maintenance of order_events failed {} runs in a row", consecutiveFailures.get());
+        }
+        removeExpired(today.minusDays(props.getRetentionDays()));
+    }
+
+    private boolean createPartition(LocalDate day) {
+        String name = PREFIX + day.format(SUFFIX);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Boolean exists = jdbcTemplate.queryForObject("select to_regclass(?) is not null", Boolean.class, name);
+                if (Boolean.TRUE.equals(exists)) {
+                    return;
+                }
+                // rows for this day that landed in the default partition would make CREATE ... PARTITION OF
+                // fail on every run, so they are moved into a plain table which is then attached. The lock
+                // keeps new rows from being routed to the default partition in between
+                jdbcTemplate.execute("lock table order_events_default in exclusive mode");
+                jdbcTemplate.execute("create table " + name + " (like order_events including defaults)");
+                int moved = jdbcTemplate.update("with moved as (delete from order_events_default"
+                                + " where created_at >= ? and created_at < ? returning *)"
+                                + " insert into " + name + " select * from moved",
+                        Timestamp.valueOf(day.atStartOfDay()), Timestamp.valueOf(day.plusDays(1).atStartOfDay()));
+                jdbcTemplate.execute("alter table order_events attach partition " + name + " for values from ('"
+                        + day + "') to ('" + day.plusDays(1) + "')");
+                if (moved > 0) {
+                    log.info("Moved {} rows from order_events_default into new partition {}", moved, name);
+                }
+            });
+            return true;
+        } catch (DataAccessException e) {
+            failures.increment();
+            log.warn("Could not create partition {}: {}", name, e.getMessage());
+            return false;
+        }
+    }
+
+    private void removeExpired(LocalDate cutoff) {
+        List<String> partitions = jdbcTemplate.queryForList("""
+                select c.relname from pg_inherits i join pg_class c on c.oid = i.inhrelid
+                where i.inhparent = 'order_events'::regclass
+                """, String.class);
+        for (String partition : partitions) {
+            Matcher matcher = PARTITION_NAME.matcher(partition);
+            if (!matcher.matches() || !LocalDate.parse(matcher.group(1), SUFFIX).isBefore(cutoff)) {
+                continue;
+            }
+            jdbcTemplate.execute("alter table order_events detach partition " + partition);
+            if (props.isDropExpired()) {
+                jdbcTemplate.execute("drop table " + partition);
+            }
+            log.info("{} expired partition {}", props.isDropExpired() ? "Dropped" : "Detached", partition);
+        }
+
+        int deleted = jdbcTemplate.update("delete from order_events_default where created_at < ?",
+                Timestamp.valueOf(cutoff.atStartOfDay()));
+        if (deleted > 0) {
+            log.info("Deleted {} expired rows from order_events_default", deleted);
+        }
+
+        int expiredIds = jdbcTemplate.update("delete from order_event_ids where created_at < ?",
+                Timestamp.valueOf(cutoff.atStartOfDay()));
+        if (expiredIds > 0) {
+            log.info("Deleted {} expired event ids from order_event_ids", expiredIds);
+        }
+    }
+}
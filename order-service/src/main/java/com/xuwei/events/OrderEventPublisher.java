@@ -1,35 +1,175 @@
 package com.xuwei.events;
 
 import com.xuwei.config.ApplicationProperties;
+import com.xuwei.utils.LatencyTimers;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.stereotype.Component;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pipelined publisher with publisher confirms. Up to {@code app.publisher.max-in-flight} messages
+ * can be waiting for their confirm; each send returns a future that completes from the confirm
+ * callback, so callers never block on a per-message round trip. Nacked, returned and timed out
+ * messages are re-sent with the same bytes and correlation id up to {@code max-retries} times.
+ * Order events reach this class through the outbox, so a message that still fails keeps its
+ * {@code order_events} row unpublished and the relay picks it up again on a later poll.
+ */
 @Component
 @Slf4j
 public class OrderEventPublisher {
 
     private final RabbitTemplate rabbitTemplate;
     private final ApplicationProperties props;
+    private final EventCodec eventCodec;
+    private final Semaphore window;
+
+    private final Timer confirmTimer;
+    private final Timer sendTimer;
+    private final Counter confirmed;
+    private final Counter retried;
+    private final Counter failed;
 
-    public OrderEventPublisher(RabbitTemplate rabbitTemplate, ApplicationProperties props) {
+    public OrderEventPublisher(RabbitTemplate rabbitTemplate,
+                               ApplicationProperties props,
+                               EventCodec eventCodec,
+                               MeterRegistry meterRegistry) {
         this.rabbitTemplate = rabbitTemplate;
         this.props = props;
+        this.eventCodec = eventCodec;
+        int maxInFlight = props.getPublisher().getMaxInFlight();
+        this.window = new Semaphore(maxInFlight);
+
+        this.confirmTimer = LatencyTimers.register(meterRegistry, "order.publisher.confirm",
+                "Time from send to a positive broker confirm", Tags.empty());
+        this.sendTimer = LatencyTimers.register(meterRegistry, "order.publisher.send",
+                "Time to check out a publisher channel and write one message, including flow-control blocking",
+                Tags.empty());
+        this.confirmed = outcomeCounter(meterRegistry, "confirmed");
+        this.retried = outcomeCounter(meterRegistry, "retried");
+        this.failed = outcomeCounter(meterRegistry, "failed");
+        Gauge.builder("order.publisher.inflight", window, w -> maxInFlight - w.availablePermits())
+                .register(meterRegistry);
+    }
+
+    /**
+     * Encodes the event once and publishes it.
+     *
+     * @return completes with {@code true} once the broker confirmed the message, {@code false} if it gave up
+     */
+    public CompletableFuture<Boolean> publish(String routingKey, Object event, String eventId) {
+        return publish(routingKey, eventCodec.toMessage(eventCodec.encode(event), eventId), eventId);
     }
 
-    public void publishOrderCreated(OrderCreatedEvent ev) {
+    /**
+     * Sends an already encoded event as-is, e.g. the payload stored in the outbox.
+     */
+    public CompletableFuture<Boolean> publish(String routingKey, Message message, String eventId) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
         try {
-            log.info(" Attempting to publish OrderCreatedEvent:");
-            log.info(" Exchange: {}", props.getOrderEventsExchange());
-            log.info(" Routing Key: {}", props.getNewOrdersQueue());
-            log.info(" Order Number: {}", ev.getOrderNumber());
+            if (!window.tryAcquire(props.getPublisher().getWindowTimeoutMs(), TimeUnit.MILLISECONDS)) {
+                log.warn("Publisher window full, not sending event {}", eventId);
+                failed.increment();
+                result.complete(false);
+                return result;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.complete(false);
+            return result;
+        }
+        return start(routingKey, message, eventId, result);
+    }
+
+    /**
+     * Like {@link #publish(String, Message, String)} but never waits for the window, for callers that
+     * hold database locks while sending.
+     *
+     * @return {@code null} if the window is full and nothing was sent
+     */
+    public CompletableFuture<Boolean> tryPublish(String routingKey, Message message, String eventId) {
+        if (!window.tryAcquire()) {
+            return null;
+        }
+        return start(routingKey, message, eventId, new CompletableFuture<>());
+    }
 
-            rabbitTemplate.convertAndSend(props.getOrderEventsExchange(), props.getNewOrdersQueue(), ev);
+    /**
+     * Upper bound on how long a future returned by this publisher can stay incomplete: every attempt
+     * may wait for a channel and then for its confirm, with the backoff between attempts.
+     */
+    public long settleTimeoutMs() {
+        ApplicationProperties.Publisher cfg = props.getPublisher();
+        long attemptMs = props.getChannels().getPublisherCheckoutTimeoutMs() + cfg.getConfirmTimeoutMs();
+        long backoffMs = cfg.getRetryBackoffMs() * ((1L << cfg.getMaxRetries()) - 1);
+        return (cfg.getMaxRetries() + 1) * attemptMs + backoffMs;
+    }
+
+    private CompletableFuture<Boolean> start(String routingKey, Message message, String eventId,
+                                             CompletableFuture<Boolean> result) {
+        result.whenComplete((ok, ex) -> window.release());
+        send(new Attempt(routingKey, message, eventId, result), 0);
+        return result;
+    }
+
+    private void send(Attempt attempt, int retry) {
+        CorrelationData correlationData = new CorrelationData(attempt.eventId());
+        long startTime = System.nanoTime();
+        try {
+            rabbitTemplate.send(props.getOrderEventsExchange(), attempt.routingKey(), attempt.message(), correlationData);
+        } catch (RuntimeException e) {
+            // includes AmqpTimeoutException when no publisher channel frees up within the checkout timeout
+            onFailure(attempt, retry, e.getMessage());
+            return;
+        } finally {
+            sendTimer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+        }
+        correlationData.getFuture()
+                .orTimeout(props.getPublisher().getConfirmTimeoutMs(), TimeUnit.MILLISECONDS)
+                .whenComplete((confirm, ex) -> {
+                    if (ex != null) {
+                        onFailure(attempt, retry, "no confirm: " + ex.getClass().getSimpleName());
+                    } else if (!confirm.isAck()) {
+                        onFailure(attempt, retry, "nack: " + confirm.getReason());
+                    } else if (correlationData.getReturned() != null) {
+                        onFailure(attempt, retry, "returned: " + correlationData.getReturned().getReplyText());
+                    } else {
+                        confirmTimer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+                        confirmed.increment();
+                        attempt.result().complete(true);
+                    }
+                });
+    }
 
-            log.info("OrderCreatedEvent published successfully");
-        } catch (Exception e) {
-            log.error("Failed to publish OrderCreatedEvent", e);
+    private void onFailure(Attempt attempt, int retry, String reason) {
+        ApplicationProperties.Publisher cfg = props.getPublisher();
+        if (retry < cfg.getMaxRetries()) {
+            retried.increment();
+            log.debug("Retrying event {} after {}", attempt.eventId(), reason);
+            // never re-send from the confirm callback, which runs on the connection's thread
+            CompletableFuture.delayedExecutor(cfg.getRetryBackoffMs() << retry, TimeUnit.MILLISECONDS)
+                    .execute(() -> send(attempt, retry + 1));
+            return;
         }
+        failed.increment();
+        log.warn("Giving up on event {} after {} attempts, last failure {}", attempt.eventId(), retry + 1, reason);
+        attempt.result().complete(false);
     }
 
+    private static Counter outcomeCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("order.publisher.messages").tag("outcome", outcome).register(meterRegistry);
+    }
+
+    private record Attempt(String routingKey, Message message, String eventId, CompletableFuture<Boolean> result) {
+    }
 }
@@ -0,0 +1,51 @@
+package com.xuwei.events;
+
+import com.xuwei.model.OrderEventEntity;
+import com.xuwei.repository.OrderEventJdbcRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OrderEventRecorder {
+
+    private final EventCodec eventCodec;
+    private final OrderEventJdbcRepository orderEventJdbcRepository;
+
+    public void record(String eventType, List<EncodedEvent> events) {
+        LocalDateTime now = LocalDateTime.now();
+        List<OrderEventEntity> entities = new ArrayList<>(events.size());
+        for (EncodedEvent encoded : events) {
+            Object event = encoded.event();
+            OrderEventEntity eventEntity = new OrderEventEntity();
+            String eventId = event instanceof OrderEvent orderEvent ? orderEvent.getEventId() : null;
+            eventEntity.setOrderNumber(extractOrderNumber(event));
+            eventEntity.setEventId(eventId != null ? eventId : UUID.randomUUID().toString());
+            eventEntity.setEventType(eventType);
+            // store the bytes as received rather than serializing the event a second time
+            eventCodec.writePayload(eventEntity, encoded);
+            eventEntity.setCreatedAt(now);
+            // consumed events are already on the broker, keep them out of the outbox relay
+            eventEntity.setPublishedAt(now);
+            entities.add(eventEntity);
+        }
+
+        int saved = orderEventJdbcRepository.insertAll(entities);
+
+        log.trace("Saved {}/{} {} events to database", saved, events.size(), eventType);
+    }
+
+    private String extractOrderNumber(Object event) {
+        if (event instanceof OrderEvent orderEvent) {
+            return orderEvent.getOrderNumber();
+        }
+        return "UNKNOWN";
+    }
+}
@@ -0,0 +1,213 @@
+package com.xuwei.events;
+
+import com.xuwei.config.ApplicationProperties;
+import com.xuwei.dto.ReplayStatus;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.BatchMessageListener;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.listener.ListenerContainerIdleEvent;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Re-reads order events from the replay streams ({@code app.queue-type=stream}) starting at an offset
+ * and runs them through the processing strategy again, e.g. to rebuild the read model. The dedup
+ * table is bypassed on purpose, so strategies must tolerate events they have already seen: recorded
+ * event ids are claimed once, created orders are only inserted when missing, and status projections
+ * never overwrite a newer change. One replay runs at a time and stops by itself once the stream has
+ * been idle for {@code app.replay.idle-timeout-ms}.
+ */
+@Slf4j
+@Component
+public class OrderEventReplayer {
+
+    private final ConnectionFactory connectionFactory;
+    private final EventProcessingStrategy processingStrategy;
+    private final EventCodec eventCodec;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationProperties props;
+
+    private Replay current;
+
+    public OrderEventReplayer(ConnectionFactory connectionFactory,
+                              EventProcessingStrategy processingStrategy,
+                              EventCodec eventCodec,
+                              TransactionTemplate transactionTemplate,
+                              ApplicationProperties props) {
+        this.connectionFactory = connectionFactory;
+        this.processingStrategy = processingStrategy;
+        this.eventCodec = eventCodec;
+        this.transactionTemplate = transactionTemplate;
+        this.props = props;
+    }
+
+    /**
+     * @param offset {@code first}, {@code last}, {@code next}, a numeric stream offset, an ISO-8601
+     *               timestamp or an interval such as {@code 1h}
+     * @throws IllegalArgumentException for an unknown event type or when the queues are not streams
+     * @throws IllegalStateException    when a replay is already running
+     */
+    public synchronized ReplayStatus start(String eventType, String offset) {
+        if (!"stream".equals(props.getQueueType())) {
+            throw new IllegalArgumentException("Replay needs app.queue-type=stream");
+        }
+        Class<?> type = eventClass(eventType);
+        if (current != null && current.isRunning()) {
+            throw new IllegalStateException("A replay is already running");
+        }
+        List<String> queues = queues(eventType);
+
+        Replay replay = new Replay(eventType, queues, offset, LocalDateTime.now());
+        SimpleMessageListenerContainer container = new SimpleMessageListenerContainer(connectionFactory);
+        container.setQueueNames(queues.toArray(String[]::new));
+        container.setConsumerArguments(Map.of("x-stream-offset", streamOffset(offset)));
+        container.setConsumerBatchEnabled(true);
+        container.setBatchSize(props.getReplay().getBatchSize());
+        container.setPrefetchCount(props.getReplay().getBatchSize());
+        container.setReceiveTimeout(props.getListener().getReceiveTimeoutMs());
+        container.setIdleEventInterval(props.getReplay().getIdleTimeoutMs());
+        container.setMessageListener((BatchMessageListener) messages -> replayBatch(replay, eventType, type, messages));
+        container.setApplicationEventPublisher(event -> {
+            if (event instanceof ListenerContainerIdleEvent) {
+                // stopping waits for the consumer thread that publishes this event, so hand it off
+                CompletableFuture.runAsync(() -> finish(replay));
+            }
+        });
+        replay.container = container;
+        current = replay;
+        container.start();
+        log.info("Replaying {} events from {} starting at offset {}", eventType, queues, offset);
+        return replay.status();
+    }
+
+    public synchronized ReplayStatus status() {
+        return current == null ? null : current.status();
+    }
+
+    private void replayBatch(Replay replay, String eventType, Class<?> type, List<Message> messages) {
+        try {
+            List<EncodedEvent> events = new ArrayList<>(messages.size());
+            for (Message message : messages) {
+                try {
+                    events.add(eventCodec.decode(message, type));
+                } catch (RuntimeException e) {
+                    // a throwing listener would get the batch redelivered over and over, so skip just this one
+                    replay.undecodable.incrementAndGet();
+                    log.warn("Skipping undecodable {} event {} during replay: {}",
+                            eventType, message.getMessageProperties().getMessageId(), e.getMessage());
+                }
+            }
+            if (events.isEmpty()) {
+                return;
+            }
+            transactionTemplate.executeWithoutResult(status -> processingStrategy.process(eventType, events));
+            replay.replayed.addAndGet(events.size());
+        } catch (RuntimeException e) {
+            // a stream cannot redeliver, so record the failure and keep going
+            replay.failed.incrementAndGet();
+            log.warn("Replay of {} {} events failed: {}", messages.size(), eventType, e.getMessage());
+        }
+    }
+
+    private synchronized void finish(Replay replay) {
+        if (replay.finishedAt != null) {
+            return;
+        }
+        replay.container.stop();
+        replay.finishedAt = LocalDateTime.now();
+        log.info("Replay of {} finished: {} events, {} undecodable, {} failed batches",
+                replay.eventType, replay.replayed.get(), replay.undecodable.get(), replay.failed.get());
+    }
+
+    @PreDestroy
+    public void stop() {
+        Replay replay = current;
+        if (replay != null && replay.isRunning()) {
+            finish(replay);
+        }
+    }
+
+    // one stream per event type, fed by every new-order partition, so orders replay in publish order
+    private List<String> queues(String eventType) {
+        String queue = switch (eventType) {
+            case "ORDER_CREATED" -> props.getNewOrdersQueue();
+            case "ORDER_DELIVERED" -> props.getDeliveredOrdersQueue();
+            case "ORDER_CANCELLED" -> props.getCancelledOrdersQueue();
+            default -> props.getErrorOrdersQueue();
+        };
+        return List.of(props.getReplay().streamName(queue));
+    }
+
+    private static Class<?> eventClass(String eventType) {
+        return switch (eventType) {
+            case "ORDER_CREATED" -> OrderCreatedEvent.class;
+            case "ORDER_DELIVERED" -> OrderDeliveredEvent.class;
+            case "ORDER_CANCELLED" -> OrderCancelledEvent.class;
+            case "ORDER_ERROR" -> OrderErrorEvent.class;
+            default -> throw new IllegalArgumentException("Unknown event type: " + eventType);
+        };
+    }
+
+    private static Object streamOffset(String offset) {
+        if (offset.chars().allMatch(Character::isDigit) && !offset.isEmpty()) {
+            return Long.parseLong(offset);
+        }
+        try {
+            return Date.from(Instant.parse(offset));
+        } catch (DateTimeParseException e) {
+            // first, last, next or an interval; the broker rejects anything else
+            return offset;
+        }
+    }
+
+    private static final class Replay {
+        final String eventType;
+        final List<String> queues;
+        final String offset;
+        final LocalDateTime startedAt;
+        final AtomicLong replayed = new AtomicLong();
+        final AtomicLong undecodable = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        volatile SimpleMessageListenerContainer container;
+        volatile LocalDateTime finishedAt;
+
+        Replay(String eventType, List<String> queues, String offset, LocalDateTime startedAt) {
+            this.eventType = eventType;
+            this.queues = queues;
+            this.offset = offset;
+            this.startedAt = startedAt;
+        }
+
+        // the container also stops on its own, e.g. when the queues do not exist
+        boolean isRunning() {
+            return finishedAt == null && container.isRunning();
+        }
+
+        ReplayStatus status() {
+            return ReplayStatus.builder()
+                    .eventType(eventType)
+                    .queues(queues)
+                    .offset(offset)
+                    .running(isRunning())
+                    .eventsReplayed(replayed.get())
+                    .eventsUndecodable(undecodable.get())
+                    .batchesFailed(failed.get())
+                    .startedAt(startedAt)
+                    .finishedAt(finishedAt)
+                    .build();
+        }
+    }
+}
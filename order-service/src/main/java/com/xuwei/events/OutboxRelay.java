@@ -0,0 +1,202 @@
+package com.xuwei.events;
+
+import com.xuwei.config.ApplicationProperties;
+import com.xuwei.model.OrderEventEntity;
+import com.xuwei.repository.OrderEventRepository;
+import com.xuwei.utils.OrderPartitions;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Publishes rows of {@code order_events} that have not been sent yet. Rows are leased through
+ * {@code claimed_until}, picked with {@code FOR UPDATE SKIP LOCKED} so several instances can relay in
+ * parallel, and a row is only marked as published after the broker confirmed it, which gives
+ * at-least-once delivery. A lease that runs out, e.g. because the instance died, frees the row again.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "app.outbox", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class OutboxRelay {
+
+    private final OrderEventRepository orderEventRepository;
+    private final OrderEventPublisher eventPublisher;
+    private final EventCodec eventCodec;
+    private final ApplicationProperties props;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter deadLettered;
+    // publishes still running when their batch stopped waiting; a re-claimed row waits on these again
+    // instead of being sent a second time
+    private final Map<Long, CompletableFuture<Boolean>> unsettled = new ConcurrentHashMap<>();
+
+    public OutboxRelay(OrderEventRepository orderEventRepository,
+                       OrderEventPublisher eventPublisher,
+                       EventCodec eventCodec,
+                       ApplicationProperties props,
+                       PlatformTransactionManager transactionManager,
+                       MeterRegistry meterRegistry) {
+        this.orderEventRepository = orderEventRepository;
+        this.eventPublisher = eventPublisher;
+        this.eventCodec = eventCodec;
+        this.props = props;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.deadLettered = Counter.builder("outbox.events.dead")
+                .description("Outbox rows set aside because they can never be delivered")
+                .tag("reason", "no-route")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "#{@applicationProperties.outbox.pollIntervalMs}")
+    public void relay() {
+        try {
+            boolean drained;
+            do {
+                drained = !relayBatch();
+            } while (!drained);
+        } catch (Exception e) {
+            log.error("Outbox relay failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Claims and marks rows in two short transactions; publishing and waiting for confirms happen in
+     * between without a transaction, so no connection or row lock is held while the broker answers.
+     *
+     * @return {@code true} if a full batch was claimed and confirmed, i.e. more rows are probably waiting
+     */
+    private boolean relayBatch() {
+        int batchSize = props.getOutbox().getBatchSize();
+        List<OrderEventEntity> claimed = transactionTemplate.execute(status -> claim(batchSize));
+        if (claimed == null || claimed.isEmpty()) {
+            return false;
+        }
+
+        Map<Long, CompletableFuture<Boolean>> inFlight = new LinkedHashMap<>();
+        List<Long> done = new ArrayList<>();
+        List<Long> dead = new ArrayList<>();
+        boolean windowFull = false;
+        for (OrderEventEntity row : claimed) {
+            CompletableFuture<Boolean> earlier = unsettled.remove(row.getId());
+            if (earlier != null && (!earlier.isDone() || earlier.join())) {
+                inFlight.put(row.getId(), earlier);
+                continue;
+            }
+            Route route = route(row);
+            if (route == null) {
+                // kept in the table with dead_lettered_at set, so it can be inspected and re-queued by hand
+                log.error("No route for outbox event type {}, dead-lettering event {}", row.getEventType(), row.getEventId());
+                dead.add(row.getId());
+                continue;
+            }
+            if (windowFull) {
+                continue;
+            }
+            // the stored payload is already in its wire format, so it is sent without decoding it
+            Message message = eventCodec.toMessage(row, route.type());
+            // rows that do not fit into the publisher window are left for a later poll
+            CompletableFuture<Boolean> sent = eventPublisher.tryPublish(route.routingKey(), message, row.getEventId());
+            if (sent == null) {
+                log.debug("Publisher window full, leaving outbox row {} for the next poll", row.getId());
+                windowFull = true;
+                continue;
+            }
+            inFlight.put(row.getId(), sent);
+        }
+
+        done.addAll(awaitConfirms(inFlight));
+        // failed and skipped rows are handed back right away; rows still in flight keep their lease
+        Set<Long> settled = new HashSet<>(done);
+        settled.addAll(dead);
+        List<Long> released = claimed.stream()
+                .map(OrderEventEntity::getId)
+                .filter(id -> !settled.contains(id) && !unsettled.containsKey(id))
+                .toList();
+        // late confirms are kept until their row comes up again; failed ones are just resent
+        unsettled.values().removeIf(future -> future.isDone() && !future.join());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            if (!done.isEmpty()) {
+                orderEventRepository.markPublished(done, now);
+            }
+            if (!dead.isEmpty()) {
+                orderEventRepository.markDeadLettered(dead, now);
+            }
+            if (!released.isEmpty()) {
+                orderEventRepository.claim(released, null);
+            }
+        });
+        deadLettered.increment(dead.size());
+        log.debug("Outbox relay published {}/{} events", done.size(), claimed.size());
+        return claimed.size() == batchSize && done.size() + dead.size() == claimed.size();
+    }
+
+    private List<OrderEventEntity> claim(int batchSize) {
+        LocalDateTime now = LocalDateTime.now();
+        List<OrderEventEntity> rows = orderEventRepository.findClaimable(batchSize, now);
+        if (!rows.isEmpty()) {
+            // twice the longest a publish can take, so a row is only claimed again once its sends settled
+            LocalDateTime claimedUntil = now.plus(2 * eventPublisher.settleTimeoutMs(), ChronoUnit.MILLIS);
+            orderEventRepository.claim(rows.stream().map(OrderEventEntity::getId).toList(), claimedUntil);
+        }
+        return rows;
+    }
+
+    // the publisher retries on its own, so wait as long as it may take to settle; rows still
+    // unconfirmed at the deadline stay in the outbox
+    private List<Long> awaitConfirms(Map<Long, CompletableFuture<Boolean>> inFlight) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(eventPublisher.settleTimeoutMs());
+        List<Long> confirmed = new ArrayList<>(inFlight.size());
+        for (Map.Entry<Long, CompletableFuture<Boolean>> entry : inFlight.entrySet()) {
+            try {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                if (entry.getValue().get(remaining, TimeUnit.NANOSECONDS)) {
+                    confirmed.add(entry.getKey());
+                }
+            } catch (TimeoutException e) {
+                log.debug("Outbox row {} not confirmed in time", entry.getKey());
+                unsettled.put(entry.getKey(), entry.getValue());
+            } catch (ExecutionException e) {
+                log.warn("Publishing outbox row {} failed: {}", entry.getKey(), e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return confirmed;
+    }
+
+    private Route route(OrderEventEntity row) {
+        return switch (row.getEventType()) {
+            case "ORDER_CREATED" -> new Route(OrderCreatedEvent.class, OrderPartitions.queueFor(
+                    props.getNewOrdersQueue(), props.getNewOrdersPartitions(), row.getOrderNumber()));
+            case "ORDER_DELIVERED" -> new Route(OrderDeliveredEvent.class, props.getDeliveredOrdersQueue());
+            case "ORDER_CANCELLED" -> new Route(OrderCancelledEvent.class, props.getCancelledOrdersQueue());
+            case "ORDER_ERROR" -> new Route(OrderErrorEvent.class, props.getErrorOrdersQueue());
+            default -> null;
+        };
+    }
+
+    private record Route(Class<?> type, String routingKey) {
+    }
+}
@@ -0,0 +1,29 @@
+package com.xuwei.events;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Default strategy: records the events in {@code order_events} and does nothing else.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.event-processing", name = "strategy", havingValue = "persist-only",
+        matchIfMissing = true)
+@RequiredArgsConstructor
+public class PersistOnlyProcessingStrategy implements EventProcessingStrategy {
+
+    private final OrderEventRecorder recorder;
+
+    @Override
+    public String name() {
+        return "persist-only";
+    }
+
+    @Override
+    public void process(String eventType, List<EncodedEvent> events) {
+        recorder.record(eventType, events);
+    }
+}
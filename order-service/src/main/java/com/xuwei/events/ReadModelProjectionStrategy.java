@@ -0,0 +1,88 @@
+package com.xuwei.events;
+
+import com.xuwei.model.OrderEntity;
+import com.xuwei.repository.OrderRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.mapping;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Records the events and projects them onto {@code orders}: created events insert the order when it
+ * is missing, delivered and cancelled events update its status unless the order changed later. Both
+ * are safe to apply again, which replays rely on.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "app.event-processing", name = "strategy", havingValue = "project")
+@RequiredArgsConstructor
+public class ReadModelProjectionStrategy implements EventProcessingStrategy {
+
+    private final OrderEventRecorder recorder;
+    private final OrderRepository orderRepository;
+
+    @Override
+    public String name() {
+        return "project";
+    }
+
+    @Override
+    public void process(String eventType, List<EncodedEvent> events) {
+        switch (eventType) {
+            case "ORDER_CREATED" -> events.forEach(event -> saveOrderFromEvent((OrderCreatedEvent) event.event()));
+            case "ORDER_DELIVERED" -> updateStatus(events.stream().map(event -> (OrderDeliveredEvent) event.event())
+                    .collect(groupingBy(event -> occurredAt(event.getDeliveredAt()),
+                            mapping(OrderDeliveredEvent::getOrderNumber, toList()))), "DELIVERED");
+            case "ORDER_CANCELLED" -> updateStatus(events.stream().map(event -> (OrderCancelledEvent) event.event())
+                    .collect(groupingBy(event -> occurredAt(event.getCancelledAt()),
+                            mapping(OrderCancelledEvent::getOrderNumber, toList()))), "CANCELLED");
+            default -> {
+            }
+        }
+        recorder.record(eventType, events);
+    }
+
+    // one update per event time, and only for orders not changed since; a replayed event therefore
+    // cannot overwrite a later status with an earlier one
+    private void updateStatus(Map<LocalDateTime, List<String>> orderNumbersByTime, String status) {
+        orderNumbersByTime.forEach((occurredAt, orderNumbers) -> {
+            int updated = orderRepository.updateStatusIfOlder(orderNumbers, status, occurredAt);
+            log.debug("Projected {} of {} orders to status {}", updated, orderNumbers.size(), status);
+        });
+    }
+
+    private static LocalDateTime occurredAt(LocalDateTime eventTime) {
+        return eventTime != null ? eventTime : LocalDateTime.now();
+    }
+
+    private void saveOrderFromEvent(OrderCreatedEvent event) {
+        OrderEntity order = new OrderEntity();
+        order.setOrderNumber(event.getOrderNumber());
+        order.setUsername(event.getUsername());
+        order.setCustomerName("Customer from Event");
+        order.setCustomerEmail("event@" + event.getOrderNumber() + ".com");
+        order.setCustomerPhone("0000000000");
+        order.setDeliveryAddressLine1("Event Address");
+        order.setDeliveryAddressCity("Event City");
+        order.setDeliveryAddressState("ES");
+        order.setDeliveryAddressZipCode("00000");
+        order.setDeliveryAddressCountry("US");
+        order.setStatus("CREATED_FROM_EVENT");
+        order.setTotalPrice(event.getTotalPrice());
+        order.setComments("Created from RabbitMQ event during stress test");
+
+        if (orderRepository.insertIfAbsent(order) == 0) {
+            log.debug("Order already exists: {}", event.getOrderNumber());
+            return;
+        }
+        log.debug("Saved order from event: {}", event.getOrderNumber());
+    }
+}
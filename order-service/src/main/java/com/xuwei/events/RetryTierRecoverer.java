@@ -0,0 +1,160 @@
+package com.xuwei.events;
+
+import com.xuwei.config.ApplicationProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.AmqpMessageReturnedException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.AmqpNackReceivedException;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.retry.MessageBatchRecoverer;
+import org.springframework.amqp.rabbit.support.RabbitExceptionTranslator;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Republishes failed order event messages to the next delayed retry tier, counting attempts in the
+ * {@code x-retry-count} header, and parks them once the tiers are used up or the message cannot be
+ * decoded at all. Parking also announces the failure as an {@link OrderErrorEvent}, sent before the
+ * message is parked so a failed announcement never leaves it parked twice. Every send waits for its
+ * broker confirm and throws when it is nacked, returned or not confirmed in time, so the failed batch
+ * is rejected and redelivered instead of being acked with its messages lost.
+ */
+@Slf4j
+@Component
+public class RetryTierRecoverer implements MessageBatchRecoverer {
+
+    public static final String RETRY_COUNT = "x-retry-count";
+    private static final int MAX_REASON_LENGTH = 1000;
+
+    private final RabbitTemplate rabbitTemplate;
+    private final EventCodec eventCodec;
+    private final ApplicationProperties props;
+    private final Counter retried;
+    private final Counter parked;
+
+    public RetryTierRecoverer(RabbitTemplate rabbitTemplate,
+                              EventCodec eventCodec,
+                              ApplicationProperties props,
+                              MeterRegistry meterRegistry) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.eventCodec = eventCodec;
+        this.props = props;
+        this.retried = Counter.builder("order.events.recovered").tag("outcome", "retry").register(meterRegistry);
+        this.parked = Counter.builder("order.events.recovered").tag("outcome", "parked").register(meterRegistry);
+    }
+
+    @Override
+    public void recover(List<Message> messages, Throwable cause) {
+        failures(messages, cause).forEach((position, failure) -> recover(messages.get(position), failure));
+    }
+
+    @Override
+    public void recover(Message message, Throwable cause) {
+        MessageProperties properties = message.getMessageProperties();
+        if (properties.getDeliveryMode() == null) {
+            properties.setDeliveryMode(properties.getReceivedDeliveryMode());
+        }
+        String reason = reason(cause);
+        properties.setHeader("x-exception-message", reason);
+        properties.setHeader("x-original-exchange", properties.getReceivedExchange());
+        properties.setHeader("x-original-routing-key", properties.getReceivedRoutingKey());
+
+        List<Long> tiers = props.getRetry().getTierDelaysMs();
+        int attempt = properties.getHeader(RETRY_COUNT) instanceof Number count ? count.intValue() : 0;
+        if (attempt < tiers.size() && !(cause instanceof MessageConversionException)) {
+            properties.setHeader(RETRY_COUNT, attempt + 1);
+            // keep the original routing key, the tier queue dead-letters the message back with it
+            sendConfirmed(props.getRetry().tierName(tiers.get(attempt)), properties.getReceivedRoutingKey(), message);
+            retried.increment();
+            log.debug("Event {} scheduled for retry {} in {}ms", properties.getMessageId(), attempt + 1, tiers.get(attempt));
+            return;
+        }
+
+        if (!props.getErrorOrdersQueue().equals(properties.getReceivedRoutingKey())) {
+            publishError(message, reason);
+        }
+        sendConfirmed("", props.getParkingLotQueue(), message);
+        parked.increment();
+        log.error("Parked event {} from '{}' after {} attempts: {}",
+                properties.getMessageId(), properties.getReceivedRoutingKey(), attempt + 1, reason);
+    }
+
+    private void sendConfirmed(String exchange, String routingKey, Message message) {
+        CorrelationData correlationData = new CorrelationData();
+        rabbitTemplate.send(exchange, routingKey, message, correlationData);
+        try {
+            CorrelationData.Confirm confirm = correlationData.getFuture()
+                    .get(props.getPublisher().getConfirmTimeoutMs(), TimeUnit.MILLISECONDS);
+            if (correlationData.getReturned() != null) {
+                throw new AmqpMessageReturnedException("Message returned by broker", correlationData.getReturned());
+            }
+            if (!confirm.isAck()) {
+                throw new AmqpNackReceivedException("Negative acknowledgment received", message);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw RabbitExceptionTranslator.convertRabbitAccessException(e);
+        } catch (ExecutionException e) {
+            throw RabbitExceptionTranslator.convertRabbitAccessException(e.getCause());
+        } catch (TimeoutException e) {
+            throw RabbitExceptionTranslator.convertRabbitAccessException(e);
+        }
+    }
+
+    // only the events the listener reported as failed; anything else failed the whole batch
+    private static Map<Integer, ? extends Throwable> failures(List<Message> messages, Throwable cause) {
+        for (Throwable t = cause; t != null; t = t.getCause()) {
+            if (t instanceof EventBatchFailedException batchFailure) {
+                return batchFailure.getFailures();
+            }
+        }
+        return IntStream.range(0, messages.size()).boxed()
+                .collect(Collectors.toMap(position -> position, position -> cause));
+    }
+
+    private void publishError(Message message, String reason) {
+        // derived from the failed message, so a redelivery that announces it again is deduplicated
+        String messageId = message.getMessageProperties().getMessageId();
+        OrderErrorEvent error = new OrderErrorEvent();
+        error.setEventId(messageId == null ? UUID.randomUUID().toString()
+                : UUID.nameUUIDFromBytes(("error:" + messageId).getBytes(StandardCharsets.UTF_8)).toString());
+        error.setOrderNumber(orderNumber(message));
+        error.setErrorMessage(reason);
+        error.setOccurredAt(LocalDateTime.now());
+        sendConfirmed(props.getOrderEventsExchange(), props.getErrorOrdersQueue(),
+                eventCodec.toMessage(eventCodec.encode(error), error.getEventId()));
+    }
+
+    private String orderNumber(Message message) {
+        try {
+            Object event = eventCodec.decode(message, OrderEvent.class).event();
+            return event instanceof OrderEvent orderEvent ? orderEvent.getOrderNumber() : "UNKNOWN";
+        } catch (RuntimeException e) {
+            return "UNKNOWN";
+        }
+    }
+
+    private static String reason(Throwable cause) {
+        Throwable root = cause;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        String reason = root.getClass().getSimpleName() + ": " + root.getMessage();
+        return reason.length() > MAX_REASON_LENGTH ? reason.substring(0, MAX_REASON_LENGTH) : reason;
+    }
+}
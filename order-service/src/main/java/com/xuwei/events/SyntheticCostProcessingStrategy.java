@@ -0,0 +1,54 @@
+package com.xuwei.events;
+
+import com.xuwei.config.ApplicationProperties;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Load-test only: records the events and then burns a configurable amount of CPU and/or waits a
+ * configurable time per event to emulate downstream work.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.event-processing", name = "strategy", havingValue = "synthetic")
+@RequiredArgsConstructor
+public class SyntheticCostProcessingStrategy implements EventProcessingStrategy {
+
+    private final OrderEventRecorder recorder;
+    private final ApplicationProperties props;
+
+    private volatile long sink;
+
+    @Override
+    public String name() {
+        return "synthetic";
+    }
+
+    @Override
+    public void process(String eventType, List<EncodedEvent> events) {
+        recorder.record(eventType, events);
+
+        ApplicationProperties.EventProcessing cfg = props.getEventProcessing();
+        long cpuNanos = TimeUnit.MICROSECONDS.toNanos(cfg.getCpuMicrosPerEvent()) * events.size();
+        if (cpuNanos > 0) {
+            burnCpu(cpuNanos);
+        }
+        long ioNanos = TimeUnit.MICROSECONDS.toNanos(cfg.getIoMicrosPerEvent()) * events.size();
+        if (ioNanos > 0) {
+            LockSupport.parkNanos(ioNanos);
+        }
+    }
+
+    private void burnCpu(long nanos) {
+        long deadline = System.nanoTime() + nanos;
+        long x = sink;
+        while (System.nanoTime() < deadline) {
+            x = x * 6364136223846793005L + 1442695040888963407L;
+        }
+        sink = x;
+    }
+}
@@ -20,19 +20,34 @@ public class OrderEventEntity {
     @Column(name = "order_number", nullable = false)
     private String orderNumber;
 
-    @Column(name = "event_id", nullable = false, unique = true)
+    @Column(name = "event_id", nullable = false)
     private String eventId;
 
     @Column(name = "event_type", nullable = false)
     private String eventType;
 
-    @Column(columnDefinition = "text", nullable = false)
+    @Column(name = "content_type", nullable = false)
+    private String contentType = "application/json";
+
+    @Column(columnDefinition = "text")
     private String payload;
 
+    @Column(name = "payload_binary")
+    private byte[] payloadBinary;
+
     @Column(name = "created_at", nullable = false)
     private LocalDateTime createdAt;
 
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    @Column(name = "published_at")
+    private LocalDateTime publishedAt;
+
+    @Column(name = "dead_lettered_at")
+    private LocalDateTime deadLetteredAt;
+
+    @Column(name = "claimed_until")
+    private LocalDateTime claimedUntil;
+
 }
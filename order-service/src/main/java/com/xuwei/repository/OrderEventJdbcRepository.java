@@ -0,0 +1,103 @@
+package com.xuwei.repository;
+
+import com.xuwei.model.OrderEventEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.List;
+
+@Repository
+public class OrderEventJdbcRepository {
+
+    // one statement per batch; events for orders this service does not know are skipped instead of
+    // failing the whole batch on the order_number foreign key. Event ids are claimed in order_event_ids
+    // first, so events already in the log (e.g. written by the producer's outbox) or inserted by a
+    // concurrent batch are left alone without probing every order_events partition
+    private static final String INSERT_ALL = """
+            with batch as (select distinct on (e.event_id) *
+                           from unnest(?::text[], ?::text[], ?::text[], ?::text[], ?::text[], ?::bytea[], ?::timestamp[],
+                                       ?::timestamp[])
+                                    as e(order_number, event_id, event_type, content_type, payload, payload_binary,
+                                         created_at, published_at)
+                           where exists (select 1 from orders o where o.order_number = e.order_number)),
+                 claimed as (insert into order_event_ids (event_id, created_at)
+                             select event_id, created_at from batch
+                             on conflict (event_id) do nothing
+                             returning event_id)
+            insert into order_events (order_number, event_id, event_type, content_type, payload, payload_binary,
+                                      created_at, published_at)
+            select b.order_number, b.event_id, b.event_type, b.content_type, b.payload, b.payload_binary,
+                   b.created_at, b.published_at
+            from batch b
+            join claimed c on c.event_id = b.event_id
+            """;
+
+    // the outbox writes go through Hibernate, which cannot target order_event_ids, so they register
+    // their ids here in the same transaction
+    private static final String REGISTER_IDS = """
+            insert into order_event_ids (event_id, created_at)
+            select * from unnest(?::text[], ?::timestamp[])
+            on conflict (event_id) do nothing
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public OrderEventJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public int insertAll(List<OrderEventEntity> events) {
+        if (events.isEmpty()) {
+            return 0;
+        }
+        int size = events.size();
+        String[] orderNumbers = new String[size];
+        String[] eventIds = new String[size];
+        String[] eventTypes = new String[size];
+        String[] contentTypes = new String[size];
+        String[] payloads = new String[size];
+        byte[][] payloadBinaries = new byte[size][];
+        Timestamp[] createdAt = new Timestamp[size];
+        Timestamp[] publishedAt = new Timestamp[size];
+        for (int i = 0; i < size; i++) {
+            OrderEventEntity event = events.get(i);
+            orderNumbers[i] = event.getOrderNumber();
+            eventIds[i] = event.getEventId();
+            eventTypes[i] = event.getEventType();
+            contentTypes[i] = event.getContentType();
+            payloads[i] = event.getPayload();
+            payloadBinaries[i] = event.getPayloadBinary();
+            createdAt[i] = Timestamp.valueOf(event.getCreatedAt());
+            publishedAt[i] = event.getPublishedAt() == null ? null : Timestamp.valueOf(event.getPublishedAt());
+        }
+
+        return jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(INSERT_ALL);
+            ps.setArray(1, connection.createArrayOf("text", orderNumbers));
+            ps.setArray(2, connection.createArrayOf("text", eventIds));
+            ps.setArray(3, connection.createArrayOf("text", eventTypes));
+            ps.setArray(4, connection.createArrayOf("text", contentTypes));
+            ps.setArray(5, connection.createArrayOf("text", payloads));
+            ps.setArray(6, connection.createArrayOf("bytea", payloadBinaries));
+            ps.setArray(7, connection.createArrayOf("timestamp", createdAt));
+            ps.setArray(8, connection.createArrayOf("timestamp", publishedAt));
+            return ps;
+        });
+    }
+
+    public int registerIds(List<OrderEventEntity> events) {
+        if (events.isEmpty()) {
+            return 0;
+        }
+        String[] eventIds = events.stream().map(OrderEventEntity::getEventId).toArray(String[]::new);
+        Timestamp[] createdAt = events.stream().map(e -> Timestamp.valueOf(e.getCreatedAt())).toArray(Timestamp[]::new);
+        return jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(REGISTER_IDS);
+            ps.setArray(1, connection.createArrayOf("text", eventIds));
+            ps.setArray(2, connection.createArrayOf("timestamp", createdAt));
+            return ps;
+        });
+    }
+}
@@ -2,8 +2,37 @@ package com.xuwei.repository;
 
 import com.xuwei.model.OrderEventEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface OrderEventRepository extends JpaRepository<OrderEventEntity, Long> {
+
+    @Query(value = """
+            select * from order_events
+            where published_at is null and dead_lettered_at is null
+              and (claimed_until is null or claimed_until < :now)
+            order by id
+            limit :batchSize
+            for update skip locked
+            """, nativeQuery = true)
+    List<OrderEventEntity> findClaimable(@Param("batchSize") int batchSize, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("update OrderEventEntity e set e.claimedUntil = :claimedUntil where e.id in :ids")
+    int claim(@Param("ids") Collection<Long> ids, @Param("claimedUntil") LocalDateTime claimedUntil);
+
+    @Modifying
+    @Query("update OrderEventEntity e set e.publishedAt = :publishedAt where e.id in :ids")
+    int markPublished(@Param("ids") Collection<Long> ids, @Param("publishedAt") LocalDateTime publishedAt);
+
+    @Modifying
+    @Query("update OrderEventEntity e set e.deadLetteredAt = :deadLetteredAt where e.id in :ids")
+    int markDeadLettered(@Param("ids") Collection<Long> ids, @Param("deadLetteredAt") LocalDateTime deadLetteredAt);
 }
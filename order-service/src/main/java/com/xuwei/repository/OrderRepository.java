@@ -1,12 +1,60 @@
 package com.xuwei.repository;
 
+import com.xuwei.dto.OrderResponse;
 import com.xuwei.model.OrderEntity;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface OrderRepository extends JpaRepository<OrderEntity, Long> {
+
+    // only the columns OrderResponse needs; DTO rows are not managed, so there is nothing to dirty check
+    String RESPONSE_COLUMNS = "new com.xuwei.dto.OrderResponse(o.id, o.orderNumber, o.status, o.customerName, o.totalPrice, o.createdAt)";
+
     Optional<OrderEntity> findByOrderNumber(String orderNumber);
+
+    @Query(value = "select " + RESPONSE_COLUMNS + " from OrderEntity o",
+            countQuery = "select count(o) from OrderEntity o")
+    Page<OrderResponse> findAllResponses(Pageable pageable);
+
+    @Query("select " + RESPONSE_COLUMNS + " from OrderEntity o where o.id > :id order by o.id")
+    List<OrderResponse> findResponsesAfter(@Param("id") Long id, Pageable limit);
+
+    @Query(nativeQuery = true, value = "select greatest(reltuples, 0)::bigint from pg_class where oid = 'orders'::regclass")
+    long estimateCount();
+
+    // orders changed after occurredAt keep their status, so an old or replayed event cannot roll them back
+    @Modifying
+    @Query("""
+            update OrderEntity o set o.status = :status, o.updatedAt = :occurredAt
+            where o.orderNumber in :orderNumbers and (o.updatedAt is null or o.updatedAt < :occurredAt)
+            """)
+    int updateStatusIfOlder(@Param("orderNumbers") Collection<String> orderNumbers,
+                            @Param("status") String status,
+                            @Param("occurredAt") LocalDateTime occurredAt);
+
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            insert into orders (order_number, username, customer_name, customer_email, customer_phone,
+                                delivery_address_line1, delivery_address_line2, delivery_address_city,
+                                delivery_address_state, delivery_address_zip_code, delivery_address_country,
+                                status, comments, total_price, created_at, updated_at)
+            values (:#{#order.orderNumber}, :#{#order.username}, :#{#order.customerName}, :#{#order.customerEmail},
+                    :#{#order.customerPhone}, :#{#order.deliveryAddressLine1}, :#{#order.deliveryAddressLine2},
+                    :#{#order.deliveryAddressCity}, :#{#order.deliveryAddressState},
+                    :#{#order.deliveryAddressZipCode}, :#{#order.deliveryAddressCountry}, :#{#order.status},
+                    :#{#order.comments}, :#{#order.totalPrice}, now(), now())
+            on conflict (order_number) do nothing
+            """)
+    int insertIfAbsent(@Param("order") OrderEntity order);
 }
@@ -0,0 +1,59 @@
+package com.xuwei.service;
+
+import com.xuwei.config.ApplicationProperties;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Compares {@link OrderService#createOrdersInBatch(int)} with one INSERT per row (JDBC batch size 1)
+ * against the configured JDBC batch size, on the same database and data shape.
+ */
+@Slf4j
+@Component
+public class BatchInsertBenchmark {
+
+    private final OrderService orderService;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationProperties props;
+
+    public BatchInsertBenchmark(OrderService orderService,
+                                EntityManager entityManager,
+                                PlatformTransactionManager transactionManager,
+                                ApplicationProperties props) {
+        this.orderService = orderService;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.props = props;
+    }
+
+    public Result run(int batchSize, int rounds) {
+        double baseline = rowsPerSecond(batchSize, rounds, 1);
+        double batched = rowsPerSecond(batchSize, rounds, props.getJdbc().getBatchSize());
+        log.info("Batch insert benchmark: {} rows/sec unbatched, {} rows/sec with JDBC batch size {}",
+                String.format("%.0f", baseline), String.format("%.0f", batched), props.getJdbc().getBatchSize());
+        return new Result(baseline, batched);
+    }
+
+    private double rowsPerSecond(int batchSize, int rounds, int jdbcBatchSize) {
+        long rows = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            Integer created = transactionTemplate.execute(status -> {
+                entityManager.unwrap(Session.class).setJdbcBatchSize(jdbcBatchSize);
+                return orderService.createOrdersInBatch(batchSize);
+            });
+            // one orders row and one order_events row per order
+            rows += 2L * (created == null ? 0 : created);
+        }
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        return seconds > 0 ? rows / seconds : 0;
+    }
+
+    public record Result(double baselineRowsPerSecond, double rowsPerSecond) {
+    }
+}
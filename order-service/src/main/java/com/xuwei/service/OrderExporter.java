@@ -0,0 +1,131 @@
+package com.xuwei.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xuwei.config.ApplicationProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes orders with their {@code order_events} as NDJSON, one order per line. Rows come from a
+ * forward-only cursor (fetch size inside a read-only transaction, which PgJDBC needs to stream), so
+ * memory stays constant however many orders match. JSON payloads are embedded as they are; anything
+ * else (e.g. the plain-text payloads of early batch-created orders) is exported as a JSON string.
+ */
+@Slf4j
+@Component
+public class OrderExporter {
+
+    private static final String SELECT_ORDERS = """
+            select o.id, o.order_number, o.username, o.status, o.customer_name, o.total_price,
+                   o.created_at, o.updated_at,
+                   coalesce((select json_agg(json_build_object('eventId', e.event_id, 'eventType', e.event_type,
+                                                               'createdAt', e.created_at, 'contentType', e.content_type,
+                                                               'payload', case when pg_input_is_valid(e.payload, 'json')
+                                                                               then e.payload::json
+                                                                               else to_json(e.payload) end,
+                                                               'payloadBase64', encode(e.payload_binary, 'base64'))
+                                             order by e.id)
+                             from order_events e
+                             where e.order_number = o.order_number), '[]') as events
+            from orders o
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ObjectMapper objectMapper;
+
+    public OrderExporter(DataSource dataSource,
+                         PlatformTransactionManager transactionManager,
+                         ObjectMapper objectMapper,
+                         ApplicationProperties props) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(props.getExport().getFetchSize());
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Exports orders matching the optional filters; {@code from} is inclusive, {@code to} exclusive.
+     */
+    public long export(String status, LocalDateTime from, LocalDateTime to, OutputStream out) throws IOException {
+        StringBuilder sql = new StringBuilder(SELECT_ORDERS).append("where true");
+        List<Object> args = new ArrayList<>();
+        if (status != null) {
+            sql.append(" and o.status = ?");
+            args.add(status);
+        }
+        if (from != null) {
+            sql.append(" and o.created_at >= ?");
+            args.add(Timestamp.valueOf(from));
+        }
+        if (to != null) {
+            sql.append(" and o.created_at < ?");
+            args.add(Timestamp.valueOf(to));
+        }
+        sql.append(" order by o.id");
+
+        long startTime = System.nanoTime();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            Long exported = readOnlyTransaction.execute(tx -> {
+                long[] count = {0};
+                jdbcTemplate.query(sql.toString(), rs -> {
+                    writeOrder(generator, rs);
+                    count[0]++;
+                }, args.toArray());
+                return count[0];
+            });
+            generator.flush();
+            log.info("Exported {} orders in {} ms", exported, (System.nanoTime() - startTime) / 1_000_000);
+            return exported == null ? 0 : exported;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void writeOrder(JsonGenerator generator, ResultSet rs) throws SQLException {
+        try {
+            generator.writeStartObject();
+            generator.writeNumberField("id", rs.getLong("id"));
+            generator.writeStringField("orderNumber", rs.getString("order_number"));
+            generator.writeStringField("username", rs.getString("username"));
+            generator.writeStringField("status", rs.getString("status"));
+            generator.writeStringField("customerName", rs.getString("customer_name"));
+            generator.writeFieldName("totalPrice");
+            generator.writeNumber(rs.getBigDecimal("total_price"));
+            writeTimestamp(generator, "createdAt", rs.getTimestamp("created_at"));
+            writeTimestamp(generator, "updatedAt", rs.getTimestamp("updated_at"));
+            generator.writeFieldName("events");
+            generator.writeRawValue(rs.getString("events"));
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        } catch (IOException e) {
+            // the client went away; stop reading from the cursor
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeTimestamp(JsonGenerator generator, String field, Timestamp value) throws IOException {
+        if (value == null) {
+            generator.writeNullField(field);
+        } else {
+            generator.writeStringField(field, value.toLocalDateTime().toString());
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.xuwei.service;
+
+import com.xuwei.config.ApplicationProperties;
+import com.xuwei.model.OrderEntity;
+import com.xuwei.model.OrderEventEntity;
+import com.xuwei.repository.OrderEventJdbcRepository;
+import com.xuwei.repository.OrderEventRepository;
+import com.xuwei.repository.OrderRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Collects single order creates from concurrent callers and writes them in one transaction, so a
+ * burst of small orders costs one commit instead of one per order. A group is flushed once it holds
+ * {@code maxBatchSize} orders or {@code maxWaitMs} after its first order arrived.
+ */
+@Slf4j
+@Component
+public class OrderGroupCommitter {
+
+    private final OrderRepository orderRepository;
+    private final OrderEventRepository orderEventRepository;
+    private final OrderEventJdbcRepository orderEventJdbcRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationProperties.GroupCommit props;
+    private final BlockingQueue<PendingOrder> queue;
+
+    private volatile boolean running;
+    private boolean stopped;
+    private Thread flusher;
+
+    public OrderGroupCommitter(OrderRepository orderRepository,
+                               OrderEventRepository orderEventRepository,
+                               OrderEventJdbcRepository orderEventJdbcRepository,
+                               TransactionTemplate transactionTemplate,
+                               ApplicationProperties props) {
+        this.orderRepository = orderRepository;
+        this.orderEventRepository = orderEventRepository;
+        this.orderEventJdbcRepository = orderEventJdbcRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.props = props.getGroupCommit();
+        this.queue = new LinkedBlockingQueue<>(this.props.getQueueCapacity());
+    }
+
+    public boolean isEnabled() {
+        return props.isEnabled();
+    }
+
+    public PendingOrder submit(OrderEntity order, Function<OrderEntity, OrderEventEntity> eventFactory) {
+        PendingOrder pending = new PendingOrder(order, eventFactory);
+        if (!startIfNeeded()) {
+            pending.result().completeExceptionally(new RejectedExecutionException("Group committer is stopped"));
+        } else if (!queue.offer(pending)) {
+            pending.result().completeExceptionally(new RejectedExecutionException("Group commit queue is full"));
+        }
+        return pending;
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        stopped = true;
+        running = false;
+        if (flusher != null) {
+            flusher.interrupt();
+        }
+    }
+
+    private synchronized boolean startIfNeeded() {
+        if (stopped) {
+            return false;
+        }
+        if (!running) {
+            running = true;
+            flusher = Thread.ofPlatform().name("order-group-commit").daemon().start(this::run);
+        }
+        return true;
+    }
+
+    private void run() {
+        List<PendingOrder> group = new ArrayList<>(props.getMaxBatchSize());
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingOrder first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(props.getMaxWaitMs());
+                while (group.size() < props.getMaxBatchSize()) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingOrder next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    group.add(next);
+                }
+            } catch (InterruptedException e) {
+                queue.drainTo(group, props.getMaxBatchSize() - group.size());
+            }
+            if (!group.isEmpty()) {
+                flush(group);
+                group.clear();
+            }
+        }
+    }
+
+    private void flush(List<PendingOrder> pendings) {
+        // orders whose caller gave up are skipped; the rest can no longer be withdrawn
+        List<PendingOrder> group = pendings.stream().filter(PendingOrder::take).toList();
+        if (group.isEmpty()) {
+            return;
+        }
+        try {
+            List<OrderEntity> saved = transactionTemplate.execute(status -> write(group));
+            for (int i = 0; i < group.size(); i++) {
+                group.get(i).result().complete(saved.get(i));
+            }
+            log.debug("Group committed {} orders", group.size());
+        } catch (RuntimeException e) {
+            // one bad order must not fail the others, so retry them one transaction each
+            log.warn("Group commit of {} orders failed, retrying individually: {}", group.size(), e.getMessage());
+            for (PendingOrder pending : group) {
+                // the rolled back group insert already assigned an id, which would turn the retry into a merge
+                pending.order().setId(null);
+                try {
+                    List<OrderEntity> saved = transactionTemplate.execute(status -> write(List.of(pending)));
+                    pending.result().complete(saved.get(0));
+                } catch (RuntimeException ex) {
+                    pending.result().completeExceptionally(ex);
+                }
+            }
+        }
+    }
+
+    private List<OrderEntity> write(List<PendingOrder> group) {
+        List<OrderEntity> saved = orderRepository.saveAll(group.stream().map(PendingOrder::order).toList());
+        List<OrderEventEntity> events = new ArrayList<>(group.size());
+        for (int i = 0; i < group.size(); i++) {
+            events.add(group.get(i).eventFactory().apply(saved.get(i)));
+        }
+        orderEventRepository.saveAll(events);
+        orderEventJdbcRepository.registerIds(events);
+        return saved;
+    }
+
+    /**
+     * An order waiting for its group. Either the flusher takes it for writing or the caller withdraws
+     * it, never both, so a caller that gave up never sees its order committed afterwards.
+     */
+    public static final class PendingOrder {
+        private final OrderEntity order;
+        private final Function<OrderEntity, OrderEventEntity> eventFactory;
+        private final CompletableFuture<OrderEntity> result = new CompletableFuture<>();
+        private final AtomicBoolean taken = new AtomicBoolean();
+
+        private PendingOrder(OrderEntity order, Function<OrderEntity, OrderEventEntity> eventFactory) {
+            this.order = order;
+            this.eventFactory = eventFactory;
+        }
+
+        public CompletableFuture<OrderEntity> result() {
+            return result;
+        }
+
+        /**
+         * @return {@code true} if no group has taken the order yet and it never will; {@code false} if
+         * it is being written, in which case {@link #result()} completes with the outcome
+         */
+        public boolean withdraw() {
+            if (!taken.compareAndSet(false, true)) {
+                return false;
+            }
+            result.cancel(false);
+            return true;
+        }
+
+        private boolean take() {
+            return taken.compareAndSet(false, true);
+        }
+
+        private OrderEntity order() {
+            return order;
+        }
+
+        private Function<OrderEntity, OrderEventEntity> eventFactory() {
+            return eventFactory;
+        }
+    }
+}
@@ -10,6 +10,8 @@ public interface OrderService {
 
     PagedResult<OrderResponse> getAllOrders(Pageable pageable);
 
+    CursorPage<OrderResponse> getOrdersAfter(String cursor, int size, boolean estimateTotal);
+
     Optional<OrderResponse> getOrderById(Long id);
 
     Optional<OrderResponse> updateOrderStatus(Long id, UpdateOrderStatusRequest req);
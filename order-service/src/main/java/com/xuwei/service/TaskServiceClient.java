@@ -1,31 +1,254 @@
 package com.xuwei.service;
 
+import com.xuwei.config.ApplicationProperties;
 import com.xuwei.dto.TaskInfoResponse;
+import com.xuwei.utils.CircuitBreaker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Client for task-service with a small near-cache of task pricing data. Entries expire
+ * {@code ttlSeconds} after they were loaded, are reloaded in the background once they are older
+ * than {@code refreshAfterSeconds}, and are still served for {@code staleIfErrorSeconds} past
+ * expiry when task-service cannot be reached. Calls go through a circuit breaker; while it is open
+ * the last known task is returned without touching the network.
+ */
 @Slf4j
 @Component
 public class TaskServiceClient {
     private final RestTemplate restTemplate;
     private final String baseUrl;
+    private final ApplicationProperties.TaskCache cacheProps;
+    private final Executor refreshExecutor;
+    private final CircuitBreaker circuitBreaker;
+    private final int bulkFetchSize;
+
+    private final Map<Long, CachedTask> cache = new ConcurrentHashMap<>();
+    private final Set<Long> refreshing = ConcurrentHashMap.newKeySet();
 
-    public TaskServiceClient(RestTemplateBuilder restTemplateBuilder,
-                             @Value("${task.service.url:http://task-service:8081}") String baseUrl) {
-        this.restTemplate = restTemplateBuilder.build();
+    private final Counter cacheHits;
+    private final Counter cacheMisses;
+    private final Counter staleHits;
+    private final Timer loadTimer;
+
+    public TaskServiceClient(@Qualifier("taskServiceRestTemplate") RestTemplate restTemplate,
+                             @Value("${task.service.url:http://task-service:8081}") String baseUrl,
+                             ApplicationProperties props,
+                             MeterRegistry meterRegistry,
+                             @Qualifier("taskRefreshExecutor") Executor refreshExecutor) {
+        this.restTemplate = restTemplate;
         this.baseUrl = baseUrl;
+        this.cacheProps = props.getTaskCache();
+        this.refreshExecutor = refreshExecutor;
+        ApplicationProperties.TaskClient clientProps = props.getTaskClient();
+        this.circuitBreaker = new CircuitBreaker(clientProps.getFailureThreshold(), clientProps.getOpenDurationMs());
+        this.bulkFetchSize = clientProps.getBulkFetchSize();
+
+        this.cacheHits = Counter.builder("task.cache.requests").tag("result", "hit").register(meterRegistry);
+        this.cacheMisses = Counter.builder("task.cache.requests").tag("result", "miss").register(meterRegistry);
+        this.staleHits = Counter.builder("task.cache.requests").tag("result", "stale").register(meterRegistry);
+        this.loadTimer = Timer.builder("task.cache.load")
+                .description("Time spent loading tasks from task-service")
+                .register(meterRegistry);
+        Gauge.builder("task.cache.size", cache, Map::size).register(meterRegistry);
+        Gauge.builder("task.client.circuit.state", circuitBreaker, breaker -> breaker.getState().ordinal())
+                .description("0 = closed, 1 = open, 2 = half-open")
+                .register(meterRegistry);
     }
 
     public TaskInfoResponse getTaskById(Long id) {
+        CachedTask cached = cache.get(id);
+        long now = System.nanoTime();
+        if (cacheProps.isEnabled() && cached != null
+                && cached.age(now) < TimeUnit.SECONDS.toNanos(cacheProps.getTtlSeconds())) {
+            cacheHits.increment();
+            if (cached.age(now) >= TimeUnit.SECONDS.toNanos(cacheProps.getRefreshAfterSeconds())) {
+                refreshAsync(id);
+            }
+            return cached.task();
+        }
+
+        cacheMisses.increment();
+        TaskInfoResponse loaded = load(id);
+        if (loaded != null) {
+            return loaded;
+        }
+
+        long staleLimit = TimeUnit.SECONDS.toNanos(cacheProps.getTtlSeconds() + cacheProps.getStaleIfErrorSeconds());
+        boolean lastKnown = circuitBreaker.getState() != CircuitBreaker.State.CLOSED;
+        if (cacheProps.isEnabled() && cached != null && cache.containsKey(id)
+                && (lastKnown || cached.age(now) < staleLimit)) {
+            staleHits.increment();
+            log.debug("Serving stale task {} after failed reload", id);
+            return cached.task();
+        }
+        return null;
+    }
+
+    public Map<Long, TaskInfoResponse> getTasksByIds(Collection<Long> ids) {
+        Map<Long, TaskInfoResponse> result = new HashMap<>();
+        Set<Long> missing = new HashSet<>();
+        long now = System.nanoTime();
+        long ttl = TimeUnit.SECONDS.toNanos(cacheProps.getTtlSeconds());
+        for (Long id : ids) {
+            CachedTask cached = cache.get(id);
+            if (cacheProps.isEnabled() && cached != null && cached.age(now) < ttl) {
+                cacheHits.increment();
+                result.put(id, cached.task());
+            } else {
+                cacheMisses.increment();
+                missing.add(id);
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        List<Long> failed = new ArrayList<>();
+        List<Long> missingIds = new ArrayList<>(missing);
+        for (int from = 0; from < missingIds.size(); from += bulkFetchSize) {
+            List<Long> chunk = missingIds.subList(from, Math.min(from + bulkFetchSize, missingIds.size()));
+            TaskInfoResponse[] loaded = loadTimer.record(() -> fetchAll(chunk));
+            if (loaded == null) {
+                failed.addAll(chunk);
+                continue;
+            }
+            for (TaskInfoResponse task : loaded) {
+                put(task.getId(), task);
+                result.put(task.getId(), task);
+            }
+        }
+
+        if (failed.isEmpty() || !cacheProps.isEnabled()) {
+            return result;
+        }
+        long staleLimit = TimeUnit.SECONDS.toNanos(cacheProps.getTtlSeconds() + cacheProps.getStaleIfErrorSeconds());
+        boolean lastKnown = circuitBreaker.getState() != CircuitBreaker.State.CLOSED;
+        for (Long id : failed) {
+            CachedTask cached = cache.get(id);
+            if (cached != null && (lastKnown || cached.age(now) < staleLimit)) {
+                staleHits.increment();
+                result.put(id, cached.task());
+            }
+        }
+        return result;
+    }
+
+    public void invalidate(Long id) {
+        cache.remove(id);
+    }
+
+    public void invalidateAll() {
+        cache.clear();
+    }
+
+    private void refreshAsync(Long id) {
+        if (!refreshing.add(id)) {
+            return;
+        }
         try {
-            return restTemplate.getForObject(baseUrl + "/api/tasks/" + id, TaskInfoResponse.class);
+            refreshExecutor.execute(() -> {
+                try {
+                    load(id);
+                } finally {
+                    refreshing.remove(id);
+                }
+            });
+        } catch (RuntimeException e) {
+            refreshing.remove(id);
+        }
+    }
+
+    private TaskInfoResponse load(Long id) {
+        TaskInfoResponse task = loadTimer.record(() -> fetch(id));
+        if (task != null) {
+            put(id, task);
+        }
+        return task;
+    }
+
+    private void put(Long id, TaskInfoResponse task) {
+        if (!cacheProps.isEnabled()) {
+            return;
+        }
+        if (cache.size() >= cacheProps.getMaxSize() && !cache.containsKey(id)) {
+            cache.entrySet().stream()
+                    .min(Comparator.comparingLong(entry -> entry.getValue().loadedAt()))
+                    .ifPresent(oldest -> cache.remove(oldest.getKey()));
+        }
+        cache.put(id, new CachedTask(task, System.nanoTime()));
+    }
+
+    private TaskInfoResponse fetch(Long id) {
+        if (!circuitBreaker.tryAcquire()) {
+            return null;
+        }
+        try {
+            TaskInfoResponse task = restTemplate.getForObject(baseUrl + "/api/tasks/" + id, TaskInfoResponse.class);
+            circuitBreaker.onSuccess();
+            return task;
+        } catch (HttpClientErrorException ex) {
+            circuitBreaker.onSuccess();
+            if (ex.getStatusCode() == HttpStatus.NOT_FOUND) {
+                cache.remove(id);
+            }
+            log.warn("task-service rejected lookup of task {}: {}", id, ex.getStatusCode());
+            return null;
         } catch (RestClientException ex) {
-            log.warn("task-service call failed", ex);
+            circuitBreaker.onFailure();
+            log.warn("task-service call failed: {}", ex.getMessage());
             return null;
         }
     }
+
+    private TaskInfoResponse[] fetchAll(Collection<Long> ids) {
+        if (!circuitBreaker.tryAcquire()) {
+            return null;
+        }
+        try {
+            String idList = ids.stream().map(String::valueOf).collect(Collectors.joining(","));
+            TaskInfoResponse[] tasks = restTemplate.getForObject(baseUrl + "/api/tasks?ids={ids}",
+                    TaskInfoResponse[].class, idList);
+            circuitBreaker.onSuccess();
+            return tasks == null ? new TaskInfoResponse[0] : tasks;
+        } catch (HttpClientErrorException ex) {
+            // task-service answered, so a rejected request says nothing about its health
+            circuitBreaker.onSuccess();
+            log.warn("task-service rejected bulk lookup of {} tasks: {}", ids.size(), ex.getStatusCode());
+            return null;
+        } catch (RestClientException ex) {
+            circuitBreaker.onFailure();
+            log.warn("task-service bulk lookup failed: {}", ex.getMessage());
+            return null;
+        }
+    }
+
+    private record CachedTask(TaskInfoResponse task, long loadedAt) {
+        long age(long now) {
+            return now - loadedAt;
+        }
+    }
 }
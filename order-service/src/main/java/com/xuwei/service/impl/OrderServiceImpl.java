@@ -1,33 +1,39 @@
 package com.xuwei.service.impl;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.xuwei.config.ApplicationProperties;
 import com.xuwei.dto.*;
+import com.xuwei.events.EventCodec;
 import com.xuwei.events.OrderCreatedEvent;
-import com.xuwei.events.OrderEventPublisher;
 import com.xuwei.model.OrderEntity;
 import com.xuwei.model.OrderEventEntity;
+import com.xuwei.repository.OrderEventJdbcRepository;
 import com.xuwei.repository.OrderEventRepository;
 import com.xuwei.repository.OrderRepository;
+import com.xuwei.service.OrderGroupCommitter;
 import com.xuwei.service.OrderService;
 import com.xuwei.service.TaskServiceClient;
+import com.xuwei.utils.Cursor;
 import com.xuwei.utils.PriceCalculator;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.transaction.support.TransactionSynchronization;
-import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
@@ -35,27 +41,33 @@ public class OrderServiceImpl implements OrderService {
 
     private final OrderRepository orderRepository;
     private final OrderEventRepository orderEventRepository;
+    private final OrderEventJdbcRepository orderEventJdbcRepository;
     private final TaskServiceClient taskServiceClient;
-    private final OrderEventPublisher eventPublisher;
-    private final ObjectMapper objectMapper;
+    private final EventCodec eventCodec;
     private final ApplicationProperties props;
+    private final TransactionTemplate transactionTemplate;
+    private final OrderGroupCommitter groupCommitter;
 
     public OrderServiceImpl(OrderRepository orderRepository,
                             OrderEventRepository orderEventRepository,
+                            OrderEventJdbcRepository orderEventJdbcRepository,
                             TaskServiceClient taskServiceClient,
-                            OrderEventPublisher eventPublisher,
-                            ObjectMapper objectMapper,
-                            ApplicationProperties props) {
+                            EventCodec eventCodec,
+                            ApplicationProperties props,
+                            TransactionTemplate transactionTemplate,
+                            OrderGroupCommitter groupCommitter) {
         this.orderRepository = orderRepository;
         this.orderEventRepository = orderEventRepository;
+        this.orderEventJdbcRepository = orderEventJdbcRepository;
         this.taskServiceClient = taskServiceClient;
-        this.eventPublisher = eventPublisher;
-        this.objectMapper = objectMapper;
+        this.eventCodec = eventCodec;
         this.props = props;
+        this.transactionTemplate = transactionTemplate;
+        this.groupCommitter = groupCommitter;
     }
 
+    // not @Transactional: the task-service call and a group commit wait must not hold a connection
     @Override
-    @Transactional
     public CreateOrderResponse createOrder(CreateOrderRequest req) {
         TaskInfoResponse task = taskServiceClient.getTaskById(req.getTaskId());
         if (task == null) {
@@ -81,43 +93,37 @@ public class OrderServiceImpl implements OrderService {
         e.setComments("taskId=" + req.getTaskId());
         e.setTotalPrice(total);
 
-        OrderEntity saved = orderRepository.save(e);
+        OrderEntity saved = groupCommitter.isEnabled() ? awaitGroupCommit(e) : transactionTemplate.execute(status -> {
+            OrderEntity order = orderRepository.save(e);
+            saveEvents(List.of(toOrderCreatedEvent(order)));
+            return order;
+        });
 
-        OrderEventEntity evtEntity = new OrderEventEntity();
-        evtEntity.setOrderNumber(saved.getOrderNumber());
-        evtEntity.setEventId(UUID.randomUUID().toString());
-        evtEntity.setEventType("ORDER_CREATED");
+        return new CreateOrderResponse(saved.getOrderNumber(), saved.getTotalPrice(), saved.getStatus());
+    }
+
+    private OrderEntity awaitGroupCommit(OrderEntity order) {
+        OrderGroupCommitter.PendingOrder pending = groupCommitter.submit(order, this::toOrderCreatedEvent);
         try {
-            OrderCreatedEvent ev = new OrderCreatedEvent();
-            ev.setOrderNumber(saved.getOrderNumber());
-            ev.setUsername(saved.getUsername());
-            ev.setTotalPrice(saved.getTotalPrice());
-            ev.setCreatedAt(saved.getCreatedAt());
-            evtEntity.setPayload(objectMapper.writeValueAsString(ev));
-        } catch (JsonProcessingException ex) {
-            throw new RuntimeException("Failed to serialize event", ex);
-        }
-        evtEntity.setCreatedAt(LocalDateTime.now());
-        orderEventRepository.save(evtEntity);
-
-        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
-            @Override
-            public void afterCommit() {
-                log.info("Transaction committed, now publishing event for order: {}", saved.getOrderNumber());
-                OrderCreatedEvent publishedEvent = new OrderCreatedEvent();
-                publishedEvent.setOrderNumber(saved.getOrderNumber());
-                publishedEvent.setUsername(saved.getUsername());
-                publishedEvent.setTotalPrice(saved.getTotalPrice());
-                publishedEvent.setCreatedAt(saved.getCreatedAt());
-                eventPublisher.publishOrderCreated(publishedEvent);
+            try {
+                return pending.result().get(props.getGroupCommit().getTimeoutMs(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException ex) {
+                if (pending.withdraw()) {
+                    throw new IllegalStateException("Group commit timed out for order " + order.getOrderNumber(), ex);
+                }
+                // a group is already writing the order, so report what that commit does instead of failing
+                return pending.result().get();
             }
-            @Override
-            public void afterCompletion(int status) {
-                log.info("Transaction completed with status: {}", status);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
             }
-        });
-
-        return new CreateOrderResponse(saved.getOrderNumber(), saved.getTotalPrice(), saved.getStatus());
+            throw new IllegalStateException("Group commit failed", ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            pending.withdraw();
+            throw new IllegalStateException("Interrupted while waiting for group commit", ex);
+        }
     }
 
     @Override
@@ -156,28 +162,7 @@ public class OrderServiceImpl implements OrderService {
             e.setTotalPrice(total);
 
             OrderEntity saved = orderRepository.save(e);
-
-
-            OrderEventEntity evtEntity = new OrderEventEntity();
-            evtEntity.setOrderNumber(saved.getOrderNumber());
-            evtEntity.setEventId(UUID.randomUUID().toString());
-            evtEntity.setEventType("ORDER_CREATED");
-            evtEntity.setPayload("{\"orderNumber\":\"" + saved.getOrderNumber() + "\",\"username\":\"" + saved.getUsername() + "\"}");
-            evtEntity.setCreatedAt(LocalDateTime.now());
-            orderEventRepository.save(evtEntity);
-
-            CompletableFuture.runAsync(() -> {
-                try {
-                    OrderCreatedEvent publishedEvent = new OrderCreatedEvent();
-                    publishedEvent.setOrderNumber(saved.getOrderNumber());
-                    publishedEvent.setUsername(saved.getUsername());
-                    publishedEvent.setTotalPrice(saved.getTotalPrice());
-                    publishedEvent.setCreatedAt(saved.getCreatedAt());
-                    eventPublisher.publishOrderCreated(publishedEvent);
-                } catch (Exception ex) {
-                    log.warn("Failed to publish event asynchronously: {}", ex.getMessage());
-                }
-            });
+            saveEvents(List.of(toOrderCreatedEvent(saved)));
 
             long endTime = System.currentTimeMillis();
             log.debug("Optimized order creation completed in {} ms", (endTime - startTime));
@@ -199,10 +184,15 @@ public class OrderServiceImpl implements OrderService {
 
         TaskInfoResponse defaultTask = createDefaultTask();
 
+        List<CreateOrderRequest> requests = new ArrayList<>(batchSize);
         for (int i = 0; i < batchSize; i++) {
-            try {
-                CreateOrderRequest request = generateRandomOrderRequest();
+            requests.add(generateRandomOrderRequest());
+        }
+        Set<Long> taskIds = requests.stream().map(CreateOrderRequest::getTaskId).collect(Collectors.toSet());
+        Map<Long, TaskInfoResponse> tasks = taskServiceClient.getTasksByIds(taskIds);
 
+        for (CreateOrderRequest request : requests) {
+            try {
 
                 OrderEntity order = new OrderEntity();
                 String orderNumber = "QR-" + UUID.randomUUID().toString().substring(0, 8);
@@ -218,7 +208,8 @@ public class OrderServiceImpl implements OrderService {
                 order.setDeliveryAddressCountry(request.getDeliveryAddressCountry());
                 order.setStatus("CREATED");
                 order.setComments("batch-test");
-                order.setTotalPrice(PriceCalculator.calculate(defaultTask, request.getDistanceKm()));
+                TaskInfoResponse task = tasks.getOrDefault(request.getTaskId(), defaultTask);
+                order.setTotalPrice(PriceCalculator.calculate(task, request.getDistanceKm()));
 
                 orders.add(order);
                 successCount++;
@@ -233,15 +224,9 @@ public class OrderServiceImpl implements OrderService {
 
 
         for (OrderEntity order : savedOrders) {
-            OrderEventEntity event = new OrderEventEntity();
-            event.setOrderNumber(order.getOrderNumber());
-            event.setEventId(UUID.randomUUID().toString());
-            event.setEventType("ORDER_CREATED");
-            event.setPayload("batch-created");
-            event.setCreatedAt(LocalDateTime.now());
-            events.add(event);
+            events.add(toOrderCreatedEvent(order));
         }
-        orderEventRepository.saveAll(events);
+        saveEvents(events);
 
         log.info("Batch created {} orders successfully", successCount);
         return successCount;
@@ -269,10 +254,17 @@ public class OrderServiceImpl implements OrderService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public PagedResult<OrderResponse> getAllOrders(Pageable pageable) {
-        Page<OrderEntity> page = orderRepository.findAll(pageable);
-        var content = page.getContent().stream().map(this::toResponse).toList();
-        return new PagedResult<>(content, page.getNumber(), page.getSize(), page.getTotalElements());
+        Page<OrderResponse> page = orderRepository.findAllResponses(pageable);
+        return new PagedResult<>(page.getContent(), page.getNumber(), page.getSize(), page.getTotalElements());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<OrderResponse> getOrdersAfter(String cursor, int size, boolean estimateTotal) {
+        List<OrderResponse> rows = orderRepository.findResponsesAfter(Cursor.decode(cursor), PageRequest.of(0, size + 1));
+        return CursorPage.of(rows, size, OrderResponse::getId, estimateTotal ? orderRepository.estimateCount() : null);
     }
 
     @Override
@@ -312,6 +304,29 @@ public class OrderServiceImpl implements OrderService {
         );
     }
 
+    private void saveEvents(List<OrderEventEntity> events) {
+        orderEventRepository.saveAll(events);
+        orderEventJdbcRepository.registerIds(events);
+    }
+
+    private OrderEventEntity toOrderCreatedEvent(OrderEntity order) {
+        String eventId = UUID.randomUUID().toString();
+        OrderCreatedEvent ev = new OrderCreatedEvent();
+        ev.setEventId(eventId);
+        ev.setOrderNumber(order.getOrderNumber());
+        ev.setUsername(order.getUsername());
+        ev.setTotalPrice(order.getTotalPrice());
+        ev.setCreatedAt(order.getCreatedAt());
+
+        OrderEventEntity evtEntity = new OrderEventEntity();
+        evtEntity.setOrderNumber(order.getOrderNumber());
+        evtEntity.setEventId(eventId);
+        evtEntity.setEventType("ORDER_CREATED");
+        eventCodec.writePayload(evtEntity, eventCodec.encode(ev));
+        evtEntity.setCreatedAt(LocalDateTime.now());
+        return evtEntity;
+    }
+
     private TaskInfoResponse createDefaultTask() {
         TaskInfoResponse task = new TaskInfoResponse();
         task.setId(1L);
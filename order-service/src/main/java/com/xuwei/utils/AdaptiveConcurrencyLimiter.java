@@ -0,0 +1,58 @@
+package com.xuwei.utils;
+
+/**
+ * AIMD concurrency limit. Every request that completes within {@code latencyThresholdNanos} while
+ * the limiter is at least half full raises the limit by one; a slow or failed request multiplies it
+ * by {@code backoffRatio}. Requests beyond the current limit are rejected by {@link #tryAcquire()}.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long latencyThresholdNanos;
+
+    private double limit;
+    private int inflight;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit,
+                                      double backoffRatio, long latencyThresholdMs) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.latencyThresholdNanos = latencyThresholdMs * 1_000_000L;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    public synchronized boolean tryAcquire() {
+        if (inflight >= (int) limit) {
+            return false;
+        }
+        inflight++;
+        return true;
+    }
+
+    public synchronized void onComplete(long latencyNanos, boolean success) {
+        if (!success || latencyNanos > latencyThresholdNanos) {
+            limit = Math.max(minLimit, limit * backoffRatio);
+        } else if (inflight * 2 >= limit) {
+            limit = Math.min(maxLimit, limit + 1);
+        }
+        inflight--;
+    }
+
+    /**
+     * Releases a permit without feeding the outcome into the limit, e.g. when the work never ran.
+     */
+    public synchronized void release() {
+        inflight--;
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInflight() {
+        return inflight;
+    }
+}
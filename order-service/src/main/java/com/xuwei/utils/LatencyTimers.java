@@ -0,0 +1,38 @@
+package com.xuwei.utils;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timers with a Prometheus percentile histogram plus client-side p50/p95/p99/p999, so tail latency
+ * is visible both in dashboards and in the stress test endpoints.
+ */
+public final class LatencyTimers {
+
+    public static final double[] PERCENTILES = {0.5, 0.95, 0.99, 0.999};
+
+    private LatencyTimers() {
+    }
+
+    public static Timer register(MeterRegistry registry, String name, String description, Tags tags) {
+        return Timer.builder(name)
+                .description(description)
+                .tags(tags)
+                .publishPercentileHistogram()
+                .publishPercentiles(PERCENTILES)
+                .register(registry);
+    }
+
+    public static double percentileMs(Timer timer, double percentile) {
+        for (ValueAtPercentile value : timer.takeSnapshot().percentileValues()) {
+            if (value.percentile() == percentile) {
+                return value.value(TimeUnit.MILLISECONDS);
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,29 @@
+package com.xuwei.utils;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Maps an order number to one of N partition queues. Routing is a plain modulus of
+ * {@link String#hashCode()}, which is specified by the JDK and therefore stable across instances,
+ * so every event of an order lands on the same queue. One partition keeps the unsuffixed name.
+ */
+public final class OrderPartitions {
+
+    private OrderPartitions() {
+    }
+
+    public static List<String> queueNames(String baseQueue, int partitions) {
+        if (partitions <= 1) {
+            return List.of(baseQueue);
+        }
+        return IntStream.range(0, partitions).mapToObj(partition -> baseQueue + "." + partition).toList();
+    }
+
+    public static String queueFor(String baseQueue, int partitions, String orderNumber) {
+        if (partitions <= 1) {
+            return baseQueue;
+        }
+        return baseQueue + "." + Math.floorMod(orderNumber.hashCode(), partitions);
+    }
+}
@@ -0,0 +1,2 @@
+-- the relay leases rows for the time it takes to publish them instead of holding row locks meanwhile
+alter table order_events add column claimed_until timestamp;
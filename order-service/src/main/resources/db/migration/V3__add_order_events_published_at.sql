@@ -0,0 +1,5 @@
+alter table order_events add column published_at timestamp;
+
+update order_events set published_at = created_at;
+
+create index order_events_unpublished_idx on order_events (id) where published_at is null;
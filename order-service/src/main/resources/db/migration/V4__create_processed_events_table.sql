@@ -0,0 +1,9 @@
+create table processed_events
+(
+    event_id     text      not null,
+    event_type   text      not null,
+    processed_at timestamp not null,
+    primary key (event_id)
+);
+
+create index processed_events_processed_at_idx on processed_events (processed_at);
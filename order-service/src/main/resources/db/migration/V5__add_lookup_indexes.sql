@@ -0,0 +1,9 @@
+create index concurrently if not exists order_events_order_number_idx on order_events (order_number);
+
+create index concurrently if not exists orders_status_idx on orders (status);
+
+create index concurrently if not exists orders_username_idx on orders (username);
+
+create index concurrently if not exists orders_created_at_idx on orders (created_at);
+
+create index concurrently if not exists order_items_order_id_idx on order_items (order_id);
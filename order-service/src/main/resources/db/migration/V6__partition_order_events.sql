@@ -0,0 +1,51 @@
+alter table order_events rename to order_events_legacy;
+alter table order_events_legacy rename constraint order_events_pkey to order_events_legacy_pkey;
+alter table order_events_legacy rename constraint order_events_event_id_key to order_events_legacy_event_id_key;
+alter table order_events_legacy rename constraint order_events_order_number_fkey to order_events_legacy_order_number_fkey;
+alter index order_events_unpublished_idx rename to order_events_legacy_unpublished_idx;
+alter index order_events_order_number_idx rename to order_events_legacy_order_number_idx;
+
+-- unique constraints on a partitioned table must include the partition key, so event_id is only
+-- indexed here; consumer-side uniqueness is enforced by processed_events
+create table order_events
+(
+    id           bigint default nextval('order_event_id_seq') not null,
+    order_number text                                         not null references orders (order_number),
+    event_id     text                                         not null,
+    event_type   text                                         not null,
+    payload      text                                         not null,
+    created_at   timestamp                                    not null,
+    updated_at   timestamp,
+    published_at timestamp,
+    primary key (id, created_at)
+) partition by range (created_at);
+
+create index order_events_order_number_idx on order_events (order_number);
+create index order_events_event_id_idx on order_events (event_id);
+create index order_events_unpublished_idx on order_events (id) where published_at is null;
+
+-- rows older than the first daily partition, or written while partition maintenance was behind
+create table order_events_default partition of order_events default;
+
+-- one partition per day from the oldest legacy row on, so the copy below lands in daily partitions
+-- instead of filling the default one, which would also block creating those days' partitions later
+do
+$$
+    declare
+        day date;
+    begin
+        for day in select d::date
+                   from generate_series((select least(min(created_at)::date, current_date) from order_events_legacy),
+                                        current_date + 2, interval '1 day') as d
+            loop
+                execute format('create table if not exists %I partition of order_events for values from (%L) to (%L)',
+                               'order_events_p' || to_char(day, 'YYYYMMDD'), day, day + 1);
+            end loop;
+    end
+$$;
+
+insert into order_events (id, order_number, event_id, event_type, payload, created_at, updated_at, published_at)
+select id, order_number, event_id, event_type, payload, created_at, updated_at, published_at
+from order_events_legacy;
+
+drop table order_events_legacy;
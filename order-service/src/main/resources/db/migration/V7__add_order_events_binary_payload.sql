@@ -0,0 +1,6 @@
+-- events encoded in a binary wire format are stored as sent instead of being re-encoded as JSON
+alter table order_events add column content_type text not null default 'application/json';
+alter table order_events add column payload_binary bytea;
+alter table order_events alter column payload drop not null;
+alter table order_events add constraint order_events_payload_present
+    check (payload is not null or payload_binary is not null);
@@ -0,0 +1,5 @@
+-- outbox rows that can never be delivered are set aside instead of being marked as published
+alter table order_events add column dead_lettered_at timestamp;
+
+drop index order_events_unpublished_idx;
+create index order_events_unpublished_idx on order_events (id) where published_at is null and dead_lettered_at is null;
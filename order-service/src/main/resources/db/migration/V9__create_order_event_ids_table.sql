@@ -0,0 +1,16 @@
+-- order_events is partitioned by created_at, so event_id cannot be unique there; this table holds
+-- one row per event id across all partitions and gives writers an ON CONFLICT target
+create table order_event_ids
+(
+    event_id   text      not null,
+    created_at timestamp not null,
+    primary key (event_id)
+);
+
+create index order_event_ids_created_at_idx on order_event_ids (created_at);
+
+insert into order_event_ids (event_id, created_at)
+select event_id, min(created_at)
+from order_events
+group by event_id;
+
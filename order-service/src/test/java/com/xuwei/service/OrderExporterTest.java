@@ -0,0 +1,76 @@
+package com.xuwei.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xuwei.config.ApplicationProperties;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Exports orders whose events were stored with payloads that are not JSON, as early batch-created
+ * orders were, and checks the stream still completes.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class OrderExporterTest {
+
+    @Container
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:16-alpine"));
+
+    static DriverManagerDataSource dataSource;
+
+    @BeforeAll
+    static void migrate() {
+        Flyway.configure()
+                .dataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword())
+                .load()
+                .migrate();
+        dataSource = new DriverManagerDataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        for (String orderNumber : new String[]{"QR-1", "QR-2"}) {
+            jdbcTemplate.update("""
+                    insert into orders (order_number, username, customer_name, customer_email, customer_phone,
+                                        delivery_address_line1, delivery_address_city, delivery_address_state,
+                                        delivery_address_zip_code, delivery_address_country, status, created_at)
+                    values (?, 'user-1', 'Customer', 'c@test.com', '0', 'Street', 'City', 'ST', '00000', 'CN',
+                            'CREATED', now())
+                    """, orderNumber);
+        }
+        jdbcTemplate.update("""
+                insert into order_events (order_number, event_id, event_type, payload, created_at)
+                values ('QR-1', 'evt-1', 'ORDER_CREATED', 'batch-created', now()),
+                       ('QR-2', 'evt-2', 'ORDER_CREATED', '{"orderNumber":"QR-2"}', now())
+                """);
+    }
+
+    @Test
+    void shouldExportNonJsonPayloadsAsStrings() throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        OrderExporter exporter = new OrderExporter(dataSource, new DataSourceTransactionManager(dataSource),
+                objectMapper, new ApplicationProperties());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long exported = exporter.export(null, null, null, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, exported);
+        assertEquals(2, lines.length);
+        JsonNode legacy = objectMapper.readTree(lines[0]).get("events").get(0).get("payload");
+        assertEquals("batch-created", legacy.asText());
+        JsonNode json = objectMapper.readTree(lines[1]).get("events").get(0).get("payload");
+        assertEquals("QR-2", json.get("orderNumber").asText());
+    }
+}
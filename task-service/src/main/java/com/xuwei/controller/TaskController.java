@@ -3,6 +3,7 @@ package com.xuwei.controller;
 import com.xuwei.dto.TaskRequest;
 import com.xuwei.dto.TaskResponse;
 import com.xuwei.service.TaskService;
+import com.xuwei.util.CursorPage;
 import com.xuwei.util.PagedResult;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -31,6 +32,25 @@ public class TaskController {
         return ResponseEntity.ok(result);
     }
 
+    @GetMapping(params = "cursor")
+    public ResponseEntity<CursorPage<TaskResponse>> listAfter(@RequestParam String cursor,
+                                                              @RequestParam(defaultValue = "10") int size,
+                                                              @RequestParam(defaultValue = "false") boolean estimate) {
+        if (size < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(taskService.findAfter(cursor, size, estimate));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping(params = "ids")
+    public ResponseEntity<List<TaskResponse>> listByIds(@RequestParam List<Long> ids) {
+        return ResponseEntity.ok(taskService.findAllByIds(ids));
+    }
+
     @GetMapping("/active")
     public ResponseEntity<List<TaskResponse>> listActive() {
         List<TaskResponse> tasks = taskService.findAllActive();
@@ -1,7 +1,9 @@
 package com.xuwei.repository;
 
 import com.xuwei.model.Task;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -9,4 +11,9 @@ import java.util.List;
 @Repository
 public interface TaskRepository extends JpaRepository<Task, Long> {
     List<Task> findByActiveTrue();
+
+    List<Task> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    @Query(nativeQuery = true, value = "select greatest(reltuples, 0)::bigint from pg_class where oid = 'tasks'::regclass")
+    long estimateCount();
 }
@@ -3,9 +3,11 @@ package com.xuwei.service;
 
 import com.xuwei.dto.TaskRequest;
 import com.xuwei.dto.TaskResponse;
+import com.xuwei.util.CursorPage;
 import com.xuwei.util.PagedResult;
 import org.springframework.data.domain.Pageable;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,5 +17,7 @@ public interface TaskService {
     Optional<TaskResponse> findById(Long id);
     void deleteById(Long id);
     PagedResult<TaskResponse> findAll(Pageable pageable);
+    CursorPage<TaskResponse> findAfter(String cursor, int size, boolean estimateTotal);
     List<TaskResponse> findAllActive();
+    List<TaskResponse> findAllByIds(Collection<Long> ids);
 }
@@ -6,12 +6,16 @@ import com.xuwei.mapper.TaskMapper;
 import com.xuwei.model.Task;
 import com.xuwei.repository.TaskRepository;
 import com.xuwei.service.TaskService;
+import com.xuwei.util.Cursor;
+import com.xuwei.util.CursorPage;
 import com.xuwei.util.PagedResult;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -62,10 +66,26 @@ public class TaskServiceImpl implements TaskService {
         );
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<TaskResponse> findAfter(String cursor, int size, boolean estimateTotal) {
+        List<TaskResponse> rows = repository.findByIdGreaterThanOrderByIdAsc(Cursor.decode(cursor), Limit.of(size + 1))
+                .stream()
+                .map(TaskMapper::toResponse)
+                .toList();
+        return CursorPage.of(rows, size, TaskResponse::getId, estimateTotal ? repository.estimateCount() : null);
+    }
+
     @Override
     @Transactional(readOnly = true)
     public List<TaskResponse> findAllActive() {
         List<Task> list = repository.findByActiveTrue();
         return list.stream().map(TaskMapper::toResponse).collect(Collectors.toList());
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<TaskResponse> findAllByIds(Collection<Long> ids) {
+        return repository.findAllById(ids).stream().map(TaskMapper::toResponse).collect(Collectors.toList());
+    }
 }
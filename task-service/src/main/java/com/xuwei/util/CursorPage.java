@@ -0,0 +1,32 @@
+package com.xuwei.util;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+
+    private List<T> content;
+
+    private int size;
+
+    private String nextCursor;
+
+    private Long estimatedTotal;
+
+    /**
+     * Builds a page from {@code size + 1} fetched rows; the extra row only signals that another page exists.
+     */
+    public static <T> CursorPage<T> of(List<T> rows, int size, ToLongFunction<T> idOf, Long estimatedTotal) {
+        boolean hasNext = rows.size() > size;
+        List<T> content = hasNext ? rows.subList(0, size) : rows;
+        String nextCursor = hasNext ? Cursor.encode(idOf.applyAsLong(content.get(size - 1))) : null;
+        return new CursorPage<>(content, size, nextCursor, estimatedTotal);
+    }
+}
@@ -41,4 +41,51 @@ class TaskControllerTest extends AbstractIT {
                 "least " + expected.size() + " tasks, but found " + names.size());
     }
 
+    @Test
+    void shouldReturnTasksByIds() {
+        String body = given()
+                .queryParam("ids", "1,2,3")
+                .when()
+                .get("/api/tasks")
+                .then()
+                .statusCode(200)
+                .extract()
+                .asString();
+
+        List<Integer> ids = JsonPath.from(body).getList("id", Integer.class);
+        assertEquals(3, ids.size(), "Expected exactly the requested tasks");
+        assertTrue(ids.containsAll(List.of(1, 2, 3)));
+    }
+
+    @Test
+    void shouldPageTasksByCursor() {
+        JsonPath first = JsonPath.from(given()
+                .queryParam("cursor", "")
+                .queryParam("size", 3)
+                .when()
+                .get("/api/tasks")
+                .then()
+                .statusCode(200)
+                .extract()
+                .asString());
+
+        List<Integer> firstIds = first.getList("content.id", Integer.class);
+        String nextCursor = first.getString("nextCursor");
+        assertEquals(3, firstIds.size());
+        assertNotNull(nextCursor, "Expected a cursor for the next page");
+
+        List<Integer> secondIds = JsonPath.from(given()
+                .queryParam("cursor", nextCursor)
+                .queryParam("size", 3)
+                .when()
+                .get("/api/tasks")
+                .then()
+                .statusCode(200)
+                .extract()
+                .asString()).getList("content.id", Integer.class);
+
+        assertFalse(secondIds.isEmpty());
+        assertTrue(secondIds.get(0) > firstIds.get(firstIds.size() - 1), "Pages must continue after the cursor");
+    }
+
 }